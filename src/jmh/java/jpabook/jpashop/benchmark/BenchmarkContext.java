@@ -0,0 +1,98 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.JpashopApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 벤치마크용 스프링 컨텍스트
+ *
+ * 벤치마크(trial)마다 새 메모리 H2 데이터베이스로 애플리케이션을 띄우고 DataGenerator 로 데이터를 채운다.
+ * 웹 서버는 띄우지 않고, 컨트롤러/리포지토리 빈을 직접 호출한다.
+ * SQL 로그는 측정에 영향을 주므로 끈다.
+ */
+public class BenchmarkContext implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkContext(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * 데이터를 생성하고 애플리케이션 시작
+     *
+     * 주문당 상품 수는 linesPerOrder 로 고정하고, 나머지 분포(상품 인기도, 주문 상태 등)는 DataGenerator 기본값을 따른다.
+     *
+     * @param orders 주문 수
+     * @param linesPerOrder 주문당 상품 수
+     * @param members 회원 수
+     * @param items 상품 수
+     * @param properties 추가 설정 (예: "jpashop.order-query.item-chunk-size=500")
+     * @return
+     */
+    public static BenchmarkContext generate(int orders, int linesPerOrder, int members, int items, String... properties) {
+
+        List<String> dataset = new ArrayList<>();
+        dataset.add("jpashop.data-generator.enabled=true");
+        dataset.add("jpashop.data-generator.orders=" + orders);
+        dataset.add("jpashop.data-generator.min-order-lines=" + linesPerOrder);
+        dataset.add("jpashop.data-generator.max-order-lines=" + linesPerOrder);
+        dataset.add("jpashop.data-generator.members=" + members);
+        dataset.add("jpashop.data-generator.items=" + items);
+
+        for (String property : properties) {
+            dataset.add(property);
+        }
+
+        return start(dataset.toArray(new String[0]));
+    }
+
+    /**
+     * @param properties 추가 설정
+     * @return
+     */
+    public static BenchmarkContext start(String... properties) {
+
+        List<String> defaults = new ArrayList<>();
+        defaults.add("spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        defaults.add("spring.jpa.properties.hibernate.format_sql=false");
+        defaults.add("logging.level.root=warn");
+        defaults.add("logging.level.org.hibernate.SQL=warn");
+        defaults.add("logging.level.org.hibernate.type=warn");
+        defaults.add("decorator.datasource.p6spy.enable-logging=false");
+
+        for (String property : properties) {
+            defaults.add(property);
+        }
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(JpashopApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(defaults.toArray(new String[0]))
+                .run();
+
+        return new BenchmarkContext(context);
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate transaction = new TransactionTemplate(getBean(PlatformTransactionManager.class));
+        transaction.setReadOnly(true);
+        return transaction;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,74 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 큰 영속성 컨텍스트의 flush 비용
+ *
+ * 주문(+회원, 배송) orders 건을 영속성 컨텍스트에 올려둔 채로 주문 하나의 상태만 바꾸고 flush 한다.
+ * 바이트코드 향상의 변경 추적(build.gradle enableDirtyTracking)을 켜면 엔티티마다 스냅샷과 모든 필드를 비교하지 않으므로
+ * 영속성 컨텍스트가 클수록 차이가 커진다. (끄고 빌드한 결과와 비교)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FlushBenchmark {
+
+    @Param({"1000", "10000"})
+    public int orders;
+
+    private BenchmarkContext context;
+    private EntityManager em;
+    private List<Order> loaded;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.generate(orders, 1, Math.max(1, orders / 10), 100);
+
+        // 트랜잭션 하나를 측정 내내 열어두고, 끝나면 롤백한다.
+        em = context.getBean(EntityManagerFactory.class).createEntityManager();
+        em.getTransaction().begin();
+
+        loaded = em.createQuery("SELECT o FROM Order o JOIN FETCH o.member JOIN FETCH o.delivery", Order.class)
+                .getResultList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        em.getTransaction().rollback();
+        em.close();
+        context.close();
+    }
+
+    @Benchmark
+    public void flushOneChange() {
+
+        Order order = loaded.get(next++ % loaded.size());
+        order.setStatus(order.getStatus() == OrderStatus.ORDER ? OrderStatus.CANCLE : OrderStatus.ORDER);
+
+        em.flush();
+    }
+}
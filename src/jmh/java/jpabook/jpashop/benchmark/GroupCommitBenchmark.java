@@ -0,0 +1,119 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.service.OrderGroupCommitter;
+import jpabook.jpashop.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 처리량 : 주문마다 커밋 vs 그룹 커밋
+ *
+ * 동시 요청 수(1, 16, 256)별로 주문 하나(상품 1개)를 처리하는 처리량을 비교한다.
+ * - groupCommit=false : OrderService.order (주문마다 트랜잭션 커밋)
+ * - groupCommit=true : OrderGroupCommitter.submit 후 완료까지 대기 (주문을 모아서 한 번에 커밋)
+ *
+ * 메모리 H2 는 커밋 시 디스크에 쓰지 않으므로 커밋 비용이 작게 나온다.
+ * 실제 데이터베이스로 비교하려면 url 을 지정한다. (예: -p url=jdbc:h2:tcp://localhost/~/jpashop-bench)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GroupCommitBenchmark {
+
+    @Param({"false", "true"})
+    public boolean groupCommit;
+
+    @Param({""})
+    public String url;
+
+    private BenchmarkContext context;
+    private OrderService orderService;
+    private OrderGroupCommitter orderGroupCommitter;
+    private List<Long> memberIds;
+    private List<Long> itemIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        String[] properties = {
+                "spring.datasource.hikari.maximum-pool-size=32",
+                "jpashop.group-commit.enabled=" + groupCommit
+        };
+
+        if (!url.isEmpty()) {
+            properties = new String[]{properties[0], properties[1], "spring.datasource.url=" + url};
+        }
+
+        context = BenchmarkContext.generate(0, 1, 1000, 1000, properties);
+
+        // 측정 중 재고가 떨어지지 않도록 충분히 채운다.
+        context.getBean(JdbcTemplate.class).update("update item set stock_quantity = ?", Integer.MAX_VALUE / 2);
+
+        EntityManager em = context.getBean(EntityManager.class);
+        memberIds = context.readOnlyTransaction().execute(status ->
+                em.createQuery("SELECT m.id FROM Member m ORDER BY m.id", Long.class).getResultList());
+        itemIds = context.readOnlyTransaction().execute(status ->
+                em.createQuery("SELECT i.id FROM Item i ORDER BY i.id", Long.class).getResultList());
+
+        orderService = context.getBean(OrderService.class);
+        orderGroupCommitter = groupCommit ? context.getBean(OrderGroupCommitter.class) : null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Long clients1() {
+        return placeOrder();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Long clients16() {
+        return placeOrder();
+    }
+
+    @Benchmark
+    @Threads(256)
+    public Long clients256() {
+        return placeOrder();
+    }
+
+    private Long placeOrder() {
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Long memberId = memberIds.get(random.nextInt(memberIds.size()));
+        Long itemId = itemIds.get(random.nextInt(itemIds.size()));
+
+        if (orderGroupCommitter == null) {
+            return orderService.order(memberId, itemId, 1);
+        }
+
+        return orderGroupCommitter.submit(memberId, Collections.singletonMap(itemId, 1)).join();
+    }
+}
@@ -0,0 +1,87 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.config.HotItemProperties;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.stock.HotItemStock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 인기 상품 하나에 주문이 몰릴 때 주문 처리량
+ *
+ * - hotItem=false : 재고를 조건부 UPDATE 로 차감 (모든 주문이 item row 하나의 잠금을 기다린다.)
+ * - hotItem=true : 재고를 메모리 카운터에서 차감하고 재고 예약만 INSERT (HotItemStock)
+ *
+ * 스레드 수를 바꿔가며(-t 1,4,16) 처리량이 코어 수만큼 늘어나는지 비교한다.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class HotItemOrderBenchmark {
+
+    @Param({"false", "true"})
+    public boolean hotItem;
+
+    private BenchmarkContext context;
+    private OrderService orderService;
+    private List<Long> memberIds;
+    private Long itemId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.generate(0, 1, 1000, 1,
+                "spring.datasource.hikari.maximum-pool-size=32",
+                "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=60000",
+                "jpashop.hot-item.enabled=" + hotItem);
+
+        // 측정 중 재고가 떨어지지 않도록 충분히 채운다.
+        context.getBean(JdbcTemplate.class).update("update item set stock_quantity = ?", Integer.MAX_VALUE / 2);
+
+        EntityManager em = context.getBean(EntityManager.class);
+        memberIds = context.readOnlyTransaction().execute(status ->
+                em.createQuery("SELECT m.id FROM Member m ORDER BY m.id", Long.class).getResultList());
+        itemId = context.readOnlyTransaction().execute(status ->
+                em.createQuery("SELECT i.id FROM Item i", Long.class).getSingleResult());
+
+        if (hotItem) {
+            // 생성된 상품 식별자를 시작 전에는 알 수 없으므로 설정을 바꾸고 카운터를 다시 채운다.
+            context.getBean(HotItemProperties.class).setItemIds(List.of(itemId));
+            context.getBean(HotItemStock.class).reconcile();
+        }
+
+        orderService = context.getBean(OrderService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long placeOrder() {
+        return orderService.order(memberIds.get(ThreadLocalRandom.current().nextInt(memberIds.size())), itemId, 1);
+    }
+}
@@ -0,0 +1,120 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.query.OrderFlatDto;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryAssembler;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.*;
+
+/**
+ * 주문 DTO 조립 비교 : Collectors.groupingBy vs OrderQueryAssembler
+ *
+ * 데이터베이스 없이 조회 결과만 메모리에 만들어두고 묶는 비용만 측정한다.
+ * 할당량은 gc 프로파일러의 gc.alloc.rate.norm (B/op) 으로 비교한다.
+ *
+ * - v5_* : 주문 목록 + 주문 상품 목록을 주문별로 묶기
+ * - v6_* : 플랫 row 를 주문 단위로 묶기
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderGroupingBenchmark {
+
+    @Param({"10000", "250000"})
+    public int orders;
+
+    @Param({"4"})
+    public int itemsPerOrder;
+
+    private List<OrderQueryDto> orderDtos;
+    private List<OrderItemQueryDto> orderItems;
+    private List<OrderFlatDto> flats;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        SplittableRandom random = new SplittableRandom(42);
+        Address address = new Address("city", "street", "12345");
+        LocalDateTime orderDate = LocalDateTime.now();
+
+        orderDtos = new ArrayList<>(orders);
+        orderItems = new ArrayList<>(orders * itemsPerOrder);
+        flats = new ArrayList<>(orders * itemsPerOrder);
+
+        for (long orderId = 1; orderId <= orders; orderId++) {
+            orderDtos.add(new OrderQueryDto(orderId, "member", orderDate, OrderStatus.ORDER, address));
+
+            for (int j = 0; j < itemsPerOrder; j++) {
+                int price = 1000 * (1 + random.nextInt(50));
+                orderItems.add(new OrderItemQueryDto(orderId, "item" + j, price, 1));
+                flats.add(new OrderFlatDto(orderId, "member", orderDate, OrderStatus.ORDER, address, "item" + j, price, 1));
+            }
+        }
+
+        // IN 쿼리 결과는 주문 순서대로 오지 않는다.
+        for (int i = orderItems.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            orderItems.set(i, orderItems.set(j, orderItems.get(i)));
+        }
+    }
+
+    @Benchmark
+    public List<OrderQueryDto> v5_collectors() {
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = orderItems.stream()
+                .collect(groupingBy(OrderItemQueryDto::getOrderId));
+
+        orderDtos.forEach(o -> o.setOrderItems(orderItemMap.get(o.getOrderId())));
+
+        return orderDtos;
+    }
+
+    @Benchmark
+    public List<OrderQueryDto> v5_assembler() {
+        OrderQueryAssembler.attachOrderItems(orderDtos, orderItems);
+        return orderDtos;
+    }
+
+    @Benchmark
+    public List<OrderQueryDto> v6_collectors() {
+        return flats.stream()
+                .collect(groupingBy(o -> new OrderQueryDto(o.getOrderId(),
+                                o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()),
+                        mapping(o -> new OrderItemQueryDto(o.getOrderId(),
+                                o.getItemName(), o.getOrderPrice(), o.getCount()), toList())
+                )).entrySet().stream()
+                .map(e -> new OrderQueryDto(e.getKey().getOrderId(),
+                        e.getKey().getName(), e.getKey().getOrderDate(), e.getKey().getOrderStatus(),
+                        e.getKey().getAddress(), e.getValue()))
+                .collect(toList());
+    }
+
+    @Benchmark
+    public List<OrderQueryDto> v6_assembler() {
+        return OrderQueryAssembler.fromFlats(flats);
+    }
+}
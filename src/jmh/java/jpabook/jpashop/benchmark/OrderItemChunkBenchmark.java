@@ -0,0 +1,79 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.config.CacheConfig;
+import jpabook.jpashop.config.OrderQueryProperties;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.CacheManager;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 상품 IN 쿼리 chunk 크기별 V5 조회 시간
+ *
+ * chunkSize 가 주문 수 이상이면 IN 쿼리 하나로 조회하고,
+ * 작으면 chunk 를 itemFetchThreads 개의 스레드에서 동시에 조회한다.
+ *
+ * 기본으로 주문 1만, 10만, 100만 건을 모두 측정한다. (trial 마다 데이터를 새로 생성하므로 100만 건은 오래 걸린다.)
+ * 일부만 빠르게 확인하려면 -p orders=10000 처럼 지정한다.
+ * 메모리 H2 에 데이터를 모두 올리므로 fork 의 힙을 늘린다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class OrderItemChunkBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int orders;
+
+    @Param({"100", "1000", "10000", "1000000"})
+    public int chunkSize;
+
+    @Param({"4"})
+    public int threads;
+
+    private BenchmarkContext context;
+    private OrderQueryRepository orderQueryRepository;
+    private CacheManager cacheManager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.generate(orders, 2, 1000, 1000,
+                "jpashop.order-query.item-fetch-threads=" + threads,
+                "spring.datasource.hikari.maximum-pool-size=" + (threads + 2));
+
+        // chunk 크기는 조회할 때마다 읽으므로 컨텍스트를 다시 띄우지 않고 바꾼다.
+        context.getBean(OrderQueryProperties.class).setItemChunkSize(chunkSize);
+
+        orderQueryRepository = context.getBean(OrderQueryRepository.class);
+        cacheManager = context.getBean(CacheManager.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<OrderQueryDto> v5() {
+        cacheManager.getCache(CacheConfig.ORDER_QUERIES).clear();
+        return orderQueryRepository.findAllByDto_optimization();
+    }
+}
@@ -0,0 +1,124 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.repository.FetchPlans;
+import jpabook.jpashop.repository.OrderCursor;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * offset 페이징과 커서(keyset) 페이징 비교
+ *
+ * 전체 주문 중 depth(%) 위치의 페이지 하나를 조회하는 시간을 측정한다.
+ * offset 방식은 depth 가 깊을수록 느려지고, 커서 방식은 depth 와 상관없이 첫 페이지와 비슷해야 한다.
+ *
+ * 기본으로 주문 10만 건과 300만 건을 측정한다. (trial 마다 데이터를 새로 생성하므로 300만 건은 오래 걸린다.)
+ * 일부만 빠르게 확인하려면 -p orders=100000 처럼 지정한다.
+ * 메모리 H2 에 데이터를 모두 올리므로 fork 의 힙을 늘린다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class OrderPagingBenchmark {
+
+    @Param({"100000", "3000000"})
+    public int orders;
+
+    @Param({"0", "50", "99"})
+    public int depth;
+
+    @Param({"100"})
+    public int limit;
+
+    private BenchmarkContext context;
+    private TransactionTemplate readOnlyTransaction;
+    private OrderRepository orderRepository;
+    private OrderQueryRepository orderQueryRepository;
+
+    private int offset;
+    private OrderCursor idCursor;
+    private OrderCursor orderDateCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.generate(orders, 2, 1000, 1000);
+
+        readOnlyTransaction = context.readOnlyTransaction();
+        orderRepository = context.getBean(OrderRepository.class);
+        orderQueryRepository = context.getBean(OrderQueryRepository.class);
+
+        offset = (int) ((long) orders * depth / 100);
+
+        // offset 바로 앞 주문을 마지막으로 조회한 것처럼 커서를 만든다.
+        EntityManager em = context.getBean(EntityManager.class);
+
+        idCursor = OrderCursor.first(OrderCursor.Sort.ID);
+        orderDateCursor = OrderCursor.first(OrderCursor.Sort.ORDER_DATE);
+
+        if (offset > 0) {
+            Object[] last = readOnlyTransaction.execute(status -> em.createQuery(
+                    "SELECT o.id, o.orderDate FROM Order o ORDER BY o.id", Object[].class)
+                    .setFirstResult(offset - 1)
+                    .setMaxResults(1)
+                    .getSingleResult());
+
+            idCursor = idCursor.next((Long) last[0], (LocalDateTime) last[1]);
+
+            Object[] lastByDate = readOnlyTransaction.execute(status -> em.createQuery(
+                    "SELECT o.id, o.orderDate FROM Order o ORDER BY o.orderDate, o.id", Object[].class)
+                    .setFirstResult(offset - 1)
+                    .setMaxResults(1)
+                    .getSingleResult());
+
+            orderDateCursor = orderDateCursor.next((Long) lastByDate[0], (LocalDateTime) lastByDate[1]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Order> v3_1_offset() {
+        return readOnlyTransaction.execute(status -> orderRepository.findAll(FetchPlans.ORDER_MEMBER_DELIVERY, offset, limit));
+    }
+
+    @Benchmark
+    public List<Order> v3_2_cursorById() {
+        return readOnlyTransaction.execute(status -> orderRepository.findAll(idCursor, limit, FetchPlans.ORDER_MEMBER_DELIVERY));
+    }
+
+    @Benchmark
+    public List<Order> v3_2_cursorByOrderDate() {
+        return readOnlyTransaction.execute(status -> orderRepository.findAll(orderDateCursor, limit, FetchPlans.ORDER_MEMBER_DELIVERY));
+    }
+
+    @Benchmark
+    public List<OrderQueryDto> v5_1_cursorById() {
+        return orderQueryRepository.findAllByDto_optimization(idCursor, limit);
+    }
+}
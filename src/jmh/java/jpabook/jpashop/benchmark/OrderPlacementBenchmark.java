@@ -0,0 +1,87 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 여러 상품 주문 처리량 (경합 상황)
+ *
+ * 여러 스레드가 적은 수(hotItems)의 상품 중에서 lines 개씩 골라 동시에 주문한다.
+ * 장바구니끼리 상품이 자주 겹치므로 재고 UPDATE 의 row 잠금 경합이 생기지만, 식별자 순서대로 차감하므로 교착 상태 없이 처리되어야 한다.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class OrderPlacementBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int lines;
+
+    @Param({"100"})
+    public int hotItems;
+
+    private BenchmarkContext context;
+    private OrderService orderService;
+    private List<Long> memberIds;
+    private List<Long> itemIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.generate(0, 1, 1000, hotItems,
+                "spring.datasource.hikari.maximum-pool-size=16");
+
+        // 측정 중 재고가 떨어지지 않도록 충분히 채운다.
+        context.getBean(JdbcTemplate.class).update("update item set stock_quantity = ?", Integer.MAX_VALUE / 2);
+
+        EntityManager em = context.getBean(EntityManager.class);
+        memberIds = context.readOnlyTransaction().execute(status ->
+                em.createQuery("SELECT m.id FROM Member m ORDER BY m.id", Long.class).getResultList());
+        itemIds = context.readOnlyTransaction().execute(status ->
+                em.createQuery("SELECT i.id FROM Item i ORDER BY i.id", Long.class).getResultList());
+
+        orderService = context.getBean(OrderService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long placeOrder() {
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<Long, Integer> countByItemId = new TreeMap<>();
+
+        while (countByItemId.size() < Math.min(lines, itemIds.size())) {
+            countByItemId.put(itemIds.get(random.nextInt(itemIds.size())), 1 + random.nextInt(3));
+        }
+
+        return orderService.order(memberIds.get(random.nextInt(memberIds.size())), countByItemId);
+    }
+}
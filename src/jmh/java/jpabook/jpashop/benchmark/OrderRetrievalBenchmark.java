@@ -0,0 +1,220 @@
+package jpabook.jpashop.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jpabook.jpashop.api.OrderApiController;
+import jpabook.jpashop.api.OrderSimpleApiController;
+import jpabook.jpashop.config.CacheConfig;
+import jpabook.jpashop.monitoring.SqlStatementCounter;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.service.query.OrderQueryService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 주문 조회 전략(V1 ~ V6) 비교
+ *
+ * 컨트롤러 메서드를 OSIV 처럼 하나의 읽기 전용 트랜잭션 안에서 호출하고, 결과를 JSON 으로 직렬화하는 것까지 측정한다.
+ * (리포지토리 조회 + 지연 로딩 + DTO 변환 + 직렬화)
+ *
+ * 결과
+ * - 처리량 : ops/s
+ * - 할당률 : gc.alloc.rate.norm (B/op, gc 프로파일러)
+ * - SQL 수 : statements (요청 하나에서 실행한 SQL 수 평균)
+ *
+ * 조회 결과 캐시(orderQueries)는 호출마다 비워서 매번 데이터베이스를 조회한다.
+ * V1, V2 는 findAllByString() 의 최대 1000건 제한을 받는다.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderRetrievalBenchmark {
+
+    @Param({"100", "1000"})
+    public int orders;
+
+    @Param({"2", "5"})
+    public int itemsPerOrder;
+
+    @Param({"100"})
+    public int members;
+
+    @Param({"100"})
+    public int items;
+
+    private BenchmarkContext context;
+    private TransactionTemplate readOnlyTransaction;
+    private OrderApiController orderApiController;
+    private OrderSimpleApiController orderSimpleApiController;
+    private OrderQueryService orderQueryService;
+    private CacheManager cacheManager;
+    private ObjectMapper objectMapper;
+    private ObjectWriter orderWriter;
+
+    /**
+     * 호출 하나에서 실행한 SQL 수
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Statements {
+
+        public double statements;
+
+        private long total;
+        private long calls;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            statements = 0;
+            total = 0;
+            calls = 0;
+        }
+
+        void record(int count) {
+            total += count;
+            calls++;
+            statements = (double) total / calls;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.generate(orders, itemsPerOrder, members, items);
+
+        readOnlyTransaction = context.readOnlyTransaction();
+        orderApiController = context.getBean(OrderApiController.class);
+        orderSimpleApiController = context.getBean(OrderSimpleApiController.class);
+        orderQueryService = context.getBean(OrderQueryService.class);
+        cacheManager = context.getBean(CacheManager.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        orderWriter = objectMapper.writerFor(OrderQueryDto.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void simpleOrdersV1_entity(Statements statements) {
+        run(statements, () -> orderSimpleApiController.ordersV1());
+    }
+
+    @Benchmark
+    public void simpleOrdersV2_lazyLoading(Statements statements) {
+        run(statements, () -> orderSimpleApiController.ordersV2());
+    }
+
+    @Benchmark
+    public void simpleOrdersV3_fetchJoin(Statements statements) {
+        run(statements, () -> orderSimpleApiController.ordersV3());
+    }
+
+    @Benchmark
+    public void simpleOrdersV4_dto(Statements statements) {
+        run(statements, () -> orderSimpleApiController.orderV4(null));
+    }
+
+    @Benchmark
+    public void ordersV1_entity(Statements statements) {
+        run(statements, () -> orderApiController.ordersV1());
+    }
+
+    @Benchmark
+    public void ordersV2_lazyLoading(Statements statements) {
+        run(statements, () -> orderApiController.ordersV2());
+    }
+
+    @Benchmark
+    public void ordersV3_collectionFetchJoin(Statements statements) {
+        run(statements, () -> orderApiController.ordersV3());
+    }
+
+    @Benchmark
+    public void ordersV3_1_batchFetch(Statements statements) {
+        run(statements, () -> orderApiController.ordersV3_page(0, orders));
+    }
+
+    @Benchmark
+    public void ordersV4_dtoPerOrder(Statements statements) {
+        run(statements, () -> orderApiController.ordersV4());
+    }
+
+    @Benchmark
+    public void ordersV5_dtoInQuery(Statements statements) {
+        run(statements, () -> orderApiController.ordersV5(null));
+    }
+
+    @Benchmark
+    public void ordersV6_flat(Statements statements) {
+        run(statements, () -> orderApiController.ordersV6());
+    }
+
+    /**
+     * V6.1 : 플랫 row 를 주문 단위로 접으면서 바로 직렬화
+     */
+    @Benchmark
+    public void ordersV6_1_flatStream(Statements statements) {
+        SqlStatementCounter.start();
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(OutputStream.nullOutputStream())) {
+            generator.writeStartArray();
+
+            orderQueryService.streamOrders(order -> {
+                try {
+                    orderWriter.writeValue(generator, order);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            statements.record(SqlStatementCounter.stop().getCount());
+        }
+    }
+
+    private void run(Statements statements, Supplier<Object> endpoint) {
+
+        cacheManager.getCache(CacheConfig.ORDER_QUERIES).clear();
+        SqlStatementCounter.start();
+
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try {
+                    objectMapper.writeValue(OutputStream.nullOutputStream(), endpoint.get());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } finally {
+            statements.record(SqlStatementCounter.stop().getCount());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSearchRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 검색 처리량 비교 : findAllByString vs findAllByCriteria vs OrderSearchRepository (미리 준비한 쿼리)
+ *
+ * 쿼리 파싱/변환 비용이 드러나도록 결과가 적은 조건(회원 한 명)으로 검색하고, 여러 스레드에서 동시에 호출한다.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class OrderSearchBenchmark {
+
+    @Param({"NONE", "STATUS", "NAME", "BOTH"})
+    public String condition;
+
+    @Param({"10000"})
+    public int orders;
+
+    private BenchmarkContext context;
+    private TransactionTemplate readOnlyTransaction;
+    private OrderRepository orderRepository;
+    private OrderSearchRepository orderSearchRepository;
+    private OrderSearch orderSearch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.generate(orders, 2, 1000, 100);
+
+        readOnlyTransaction = context.readOnlyTransaction();
+        orderRepository = context.getBean(OrderRepository.class);
+        orderSearchRepository = context.getBean(OrderSearchRepository.class);
+
+        orderSearch = new OrderSearch();
+
+        if (condition.equals("STATUS") || condition.equals("BOTH")) {
+            orderSearch.setOrderStatus(OrderStatus.CANCLE);
+        }
+
+        // NONE, STATUS 는 최대 1000건 제한까지 읽으므로 결과가 적은 NAME, BOTH 에서 파싱 비용 차이가 잘 보인다.
+        if (condition.equals("NAME") || condition.equals("BOTH")) {
+            orderSearch.setMemberName("member7");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Order> jpqlString() {
+        return readOnlyTransaction.execute(status -> orderRepository.findAllByString(orderSearch));
+    }
+
+    @Benchmark
+    public List<Order> criteria() {
+        return readOnlyTransaction.execute(status -> orderRepository.findAllByCriteria(orderSearch));
+    }
+
+    @Benchmark
+    public List<Order> preparedNamedQuery() {
+        return readOnlyTransaction.execute(status -> orderSearchRepository.findAll(orderSearch));
+    }
+}
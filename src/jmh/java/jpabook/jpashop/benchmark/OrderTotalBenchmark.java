@@ -0,0 +1,84 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSearchRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 1000건의 총액 조회 : 저장된 총액(orders.total_price) vs 주문 상품 합산
+ *
+ * - storedTotal : 주문만 조회하고 Order.getTotalPrice() 를 읽는다.
+ * - summedOrderItems : 예전 방식처럼 주문 상품(+ 배치 조회)을 읽어서 가격 * 수량을 더한다.
+ * - topByTotal : 총액 높은순 1000건 (총액 인덱스를 따라 읽는다.)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderTotalBenchmark {
+
+    @Param({"100000"})
+    public int orders;
+
+    private BenchmarkContext context;
+    private TransactionTemplate readOnlyTransaction;
+    private OrderSearchRepository orderSearchRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.generate(orders, 3, 1000, 100);
+
+        readOnlyTransaction = context.readOnlyTransaction();
+        orderSearchRepository = context.getBean(OrderSearchRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long storedTotal() {
+        return readOnlyTransaction.execute(status -> orderSearchRepository.findAll(new OrderSearch()).stream()
+                .mapToLong(Order::getTotalPrice)
+                .sum());
+    }
+
+    @Benchmark
+    public long summedOrderItems() {
+        return readOnlyTransaction.execute(status -> orderSearchRepository.findAll(new OrderSearch()).stream()
+                .flatMap(order -> order.getOrderItems().stream())
+                .mapToLong(OrderItem::getTotalPrice)
+                .sum());
+    }
+
+    @Benchmark
+    public long topByTotal() {
+
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setSort(OrderSearch.Sort.TOTAL_PRICE_DESC);
+
+        return readOnlyTransaction.execute(status -> orderSearchRepository.findAll(orderSearch).stream()
+                .mapToLong(Order::getTotalPrice)
+                .sum());
+    }
+}
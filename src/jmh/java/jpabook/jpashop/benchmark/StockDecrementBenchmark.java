@@ -0,0 +1,108 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.ItemRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 인기 상품 재고 차감 처리량
+ *
+ * 여러 스레드가 적은 수(hotItems)의 상품 재고를 동시에 1개씩 차감한다.
+ * - conditionalUpdate : 재고가 충분할 때만 차감하는 UPDATE 한 번 (ItemRepository.removeStock)
+ * - pessimisticLock : SELECT ... FOR UPDATE 로 잠그고 엔티티 재고를 빼서 변경 감지로 저장 (비교용, 애플리케이션은 사용하지 않음)
+ *
+ * hotItems=1 이면 모든 스레드가 row 하나를 두고 경합한다.
+ * 잠금 대기가 길어져도 실패하지 않도록 데이터베이스 잠금 대기 시간을 늘린다.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class StockDecrementBenchmark {
+
+    @Param({"1", "10"})
+    public int hotItems;
+
+    private BenchmarkContext context;
+    private TransactionTemplate transaction;
+    private EntityManager em;
+    private ItemRepository itemRepository;
+    private List<Long> itemIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.generate(0, 1, 1, hotItems,
+                "spring.datasource.hikari.maximum-pool-size=32",
+                "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=60000");
+
+        // 측정 중 재고가 떨어지지 않도록 충분히 채운다.
+        context.getBean(JdbcTemplate.class).update("update item set stock_quantity = ?", Integer.MAX_VALUE / 2);
+
+        em = context.getBean(EntityManager.class);
+        itemIds = context.readOnlyTransaction().execute(status ->
+                em.createQuery("SELECT i.id FROM Item i ORDER BY i.id", Long.class).getResultList());
+
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        itemRepository = context.getBean(ItemRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void conditionalUpdate() {
+
+        Long itemId = nextItemId();
+
+        transaction.executeWithoutResult(status -> itemRepository.removeStock(itemId, 1));
+    }
+
+    @Benchmark
+    public void pessimisticLock() {
+
+        Long itemId = nextItemId();
+
+        transaction.executeWithoutResult(status -> {
+            Item item = em.find(Item.class, itemId, LockModeType.PESSIMISTIC_WRITE);
+
+            if (item.getStockQuantity() < 1) {
+                throw new NotEnoughStockException("need more stock");
+            }
+
+            item.setStockQuantity(item.getStockQuantity() - 1);
+        });
+    }
+
+    private Long nextItemId() {
+        return itemIds.get(ThreadLocalRandom.current().nextInt(itemIds.size()));
+    }
+}
@@ -3,6 +3,7 @@ package jpabook.jpashop;
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.item.Book;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,9 +19,12 @@ import javax.persistence.EntityManager;
  * userB
  *  - SPRING1 Book
  *  - SPRING2 Book
+ *
+ * 성능 테스트용 데이터 생성(jpashop.data-generator.enabled=true)을 사용하면 실행하지 않는다.
  */
 @Component
 @RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "jpashop.data-generator", name = "enabled", havingValue = "false", matchIfMissing = true)
 public class InitDb {
 
     private final InitService initService;
@@ -0,0 +1,61 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.exception.InvalidRequestException;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import javax.validation.ConstraintViolationException;
+
+/**
+ * API 요청 값 오류를 400 으로 응답
+ *
+ * 요청 파라미터의 범위 제약(@Min, @Max 등)을 어기거나 서비스가 요청 값을 거부하면(InvalidRequestException)
+ * 500 대신 400 과 오류 메시지를 돌려준다. 재고가 부족하면 409 로 응답한다.
+ * 그 밖의 IllegalArgumentException 은 내부 오류이므로 500 으로 둔다.
+ */
+@RestControllerAdvice(basePackages = "jpabook.jpashop.api")
+public class ApiExceptionHandler {
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ErrorResult constraintViolation(ConstraintViolationException e) {
+        return new ErrorResult("BAD_REQUEST", e.getMessage());
+    }
+
+    /**
+     * 서비스의 요청 값 확인 실패 (존재하지 않는 회원, 상품 등)
+     *
+     * @param e
+     * @return
+     */
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidRequestException.class)
+    public ErrorResult invalidRequest(InvalidRequestException e) {
+        return new ErrorResult("BAD_REQUEST", e.getMessage());
+    }
+
+    /**
+     * 재고 부족 (요청 값은 올바르지만 현재 재고와 충돌)
+     *
+     * @param e
+     * @return
+     */
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(NotEnoughStockException.class)
+    public ErrorResult notEnoughStock(NotEnoughStockException e) {
+        return new ErrorResult("NOT_ENOUGH_STOCK", e.getMessage());
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class ErrorResult {
+
+        private String code;
+        private String message;
+    }
+}
@@ -1,23 +1,54 @@
 package jpabook.jpashop.api;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.FetchPlans;
+import jpabook.jpashop.repository.OrderCursor;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
-import jpabook.jpashop.repository.order.query.OrderFlatDto;
-import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderField;
+import jpabook.jpashop.repository.order.query.OrderFieldQueryRepository;
 import jpabook.jpashop.repository.order.query.OrderQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.OrderGroupCommitter;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.query.OrderQueryService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.*;
@@ -29,11 +60,19 @@ import static java.util.stream.Collectors.*;
  * 컬렉션인 일대다 관계(OneToMany)를 조회 및 최적화
  */
 @RestController
+@Validated // 요청 파라미터 범위 검사 (위반하면 400, ApiExceptionHandler)
 @RequiredArgsConstructor
 public class OrderApiController {
 
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+
     private final OrderRepository orderRepository;
     private final OrderQueryRepository orderQueryRepository;
+    private final OrderFieldQueryRepository orderFieldQueryRepository;
+    private final OrderService orderService;
+    private final OrderQueryService orderQueryService;
+    private final ObjectProvider<OrderGroupCommitter> orderGroupCommitter; // 그룹 커밋을 끄면 빈이 없다.
+    private final ObjectMapper objectMapper;
 
     /**
      * 주문 조회 V1
@@ -106,12 +145,13 @@ public class OrderApiController {
      * 엔티티를 DTO 로 변환 - fetch join 최적화
      *
      * fetch join 으로 SQL 이 1번만 실행됨.
+     * 회원, 배송, 주문 상품, 상품을 모두 사용하므로 FetchPlans.ORDER_ITEMS (@NamedEntityGraph "Order.withItems")
      *
      * @return
      */
     @GetMapping("/api/v3/orders")
     public List<OrderDto> ordersV3() {
-        List<Order> orders = orderRepository.findAllWithItem();
+        List<Order> orders = orderRepository.findAll(FetchPlans.ORDER_ITEMS);
         List<OrderDto> result = orders.stream()
                 .map(o -> new OrderDto(o))
                 .collect(toList());
@@ -143,16 +183,18 @@ public class OrderApiController {
      * ToOne 관계는 fetch join 해도 페이징에 영향을 주지 않으므로,
      * ToOne 관계는 fetch join 으로 쿼리 수를 줄이고 해결하고, 나머지는 hibernate.default_batch_fetch_size 로 최적화
      *
-     * @param offset
-     * @param limit
+     * V3 와 같은 fetch plan 을 선언하면 페이징 쿼리에서는 리포지토리가 ToOne 관계만 조인한다.
+     *
+     * @param offset (0 이상)
+     * @param limit 페이지 크기 (1 ~ 1000)
      * @return
      */
     @GetMapping("/api/v3.1/orders")
     public List<OrderDto> ordersV3_page(
-            @RequestParam(value = "offset", defaultValue = "0") int offset,
-            @RequestParam(value = "limit", defaultValue = "100") int limit)
+            @RequestParam(value = "offset", defaultValue = "0") @Min(0) int offset,
+            @RequestParam(value = "limit", defaultValue = "100") @Min(1) @Max(1000) int limit)
     {
-        List<Order> orders = orderRepository.findAllWithMemberDelivery(offset, limit);
+        List<Order> orders = orderRepository.findAll(FetchPlans.ORDER_ITEMS, offset, limit);
         List<OrderDto> result = orders.stream()
                 .map(o -> new OrderDto(o))
                 .collect(toList());
@@ -160,6 +202,44 @@ public class OrderApiController {
         return result;
     }
 
+    /**
+     * 주문 조회 V3.2
+     * 엔티티를 DTO로 변환 - 커서(keyset) 기반 페이징
+     *
+     * V3.1 의 offset 방식은 DB 가 앞 페이지의 row 를 모두 읽고 버리므로 뒤 페이지로 갈수록 느려진다.
+     * 마지막으로 조회한 order_id (정렬이 ORDER_DATE 이면 orderDate, order_id) 이후부터 인덱스로 바로 탐색하므로
+     * 몇 번째 페이지든 첫 페이지와 비용이 같다.
+     *
+     * 응답의 nextCursor 를 다음 요청의 cursor 로 그대로 넘긴다. (더 이상 데이터가 없으면 null)
+     *
+     * @param cursor 이전 응답의 nextCursor (해석할 수 없으면 400)
+     * @param sort
+     * @param limit 페이지 크기 (1 ~ 1000)
+     * @return
+     */
+    @GetMapping("/api/v3.2/orders")
+    public CursorResult<List<OrderDto>> ordersV3_cursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "sort", defaultValue = "ID") OrderCursor.Sort sort,
+            @RequestParam(value = "limit", defaultValue = "100") @Min(1) @Max(1000) int limit)
+    {
+        OrderCursor orderCursor = cursor == null ? OrderCursor.first(sort) : OrderCursor.decode(cursor);
+
+        List<Order> orders = orderRepository.findAll(orderCursor, limit, FetchPlans.ORDER_ITEMS);
+        List<OrderDto> result = orders.stream()
+                .map(o -> new OrderDto(o))
+                .collect(toList());
+
+        String nextCursor = null;
+
+        if (orders.size() == limit) {
+            Order last = orders.get(orders.size() - 1);
+            nextCursor = orderCursor.next(last.getId(), last.getOrderDate()).encode();
+        }
+
+        return new CursorResult<>(result, nextCursor);
+    }
+
     /**
      * 주문 조회 V4
      * JPA에서 DTO 직접 조회
@@ -187,15 +267,58 @@ public class OrderApiController {
      * Query: 루트 1번, 컬렉션 1번
      * ToOne 관계들을 먼저 조회하고, 여기서 얻은 식별자 orderId 로 ToMany 관계인 OrderItem 을 한꺼번에 조회
      *
-     * MAP 을 사용해서 매칭 성능 향상 (O(1))
+     * long 키 해시 맵(LongIntHashMap)을 사용해서 매칭 성능 향상 (O(1), 식별자 박싱 없음)
+     *
+     * fields 파라미터 (예: fields=orderId,orderStatus,orderDate)
+     * 요청한 필드만 SELECT 하고, orderItems 를 요청하지 않으면 컬렉션 쿼리를 실행하지 않는다.
+     * (선택 가능 : orderId, name, orderDate, orderStatus, address, orderItems / orderId 는 항상 포함)
+     * 선택할 수 없는 필드를 요청하면 400 으로 응답한다. (ApiExceptionHandler)
      *
+     * @param fields
      * @return
      */
     @GetMapping("/api/v5/orders")
-    public List<OrderQueryDto> ordersV5() {
+    public List<?> ordersV5(@RequestParam(value = "fields", required = false) String fields) {
+
+        if (fields != null) {
+            return orderFieldQueryRepository.findOrders(OrderField.parse(fields, EnumSet.allOf(OrderField.class)));
+        }
+
         return orderQueryRepository.findAllByDto_optimization();
     }
 
+    /**
+     * 주문 조회 V5.1
+     * JPA 에서 DTO 직접 조회 - 컬렉션 조회 최적화 + 커서(keyset) 기반 페이징
+     *
+     * Query: 루트 1번, 컬렉션 1번
+     * 루트는 커서 이후부터 limit 건만 조회하고, 그 식별자로 OrderItem 을 한꺼번에 조회
+     *
+     * @param cursor 이전 응답의 nextCursor (해석할 수 없으면 400)
+     * @param sort
+     * @param limit 페이지 크기 (1 ~ 1000)
+     * @return
+     */
+    @GetMapping("/api/v5.1/orders")
+    public CursorResult<List<OrderQueryDto>> ordersV5_cursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "sort", defaultValue = "ID") OrderCursor.Sort sort,
+            @RequestParam(value = "limit", defaultValue = "100") @Min(1) @Max(1000) int limit)
+    {
+        OrderCursor orderCursor = cursor == null ? OrderCursor.first(sort) : OrderCursor.decode(cursor);
+
+        List<OrderQueryDto> result = orderQueryRepository.findAllByDto_optimization(orderCursor, limit);
+
+        String nextCursor = null;
+
+        if (result.size() == limit) {
+            OrderQueryDto last = result.get(result.size() - 1);
+            nextCursor = orderCursor.next(last.getOrderId(), last.getOrderDate()).encode();
+        }
+
+        return new CursorResult<>(result, nextCursor);
+    }
+
     /**
      * 주문 조회 V6
      * JPA 에서 DTO 로 직접 조회, 플랫 데이터 최적화
@@ -210,18 +333,185 @@ public class OrderApiController {
      */
     @GetMapping("/api/v6/orders")
     public List<OrderQueryDto> ordersV6() {
-        List<OrderFlatDto> flats = orderQueryRepository.findAllByDto_flat();
-
-        return flats.stream()
-                .collect(groupingBy(o -> new OrderQueryDto(o.getOrderId(),
-                                o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()),
-                        mapping(o -> new OrderItemQueryDto(o.getOrderId(),
-                                o.getItemName(), o.getOrderPrice(), o.getCount()), toList())
-                )).entrySet().stream()
-                .map(e -> new OrderQueryDto(e.getKey().getOrderId(),
-                        e.getKey().getName(), e.getKey().getOrderDate(), e.getKey().getOrderStatus(),
-                        e.getKey().getAddress(), e.getValue()))
-                .collect(toList());
+        // 주문 식별자 기준으로 묶어서 OrderQueryDto 로 변환 (주문은 처음 나타난 순서대로)
+        return orderQueryRepository.findAllByDto_flat();
+    }
+
+    /**
+     * 주문 조회 V6.1
+     * JPA 에서 DTO 로 직접 조회, 플랫 데이터 스트리밍
+     *
+     * Query: 1번
+     *
+     * V6 는 플랫 row 전체, groupingBy 결과, 최종 DTO 목록을 모두 메모리에 올리고 주문 순서도 잃어버린다.
+     * order_id 순으로 정렬한 커서를 한 번만 훑으면서 같은 주문의 연속된 row 를 하나로 접고,
+     * 완성된 주문을 바로 응답에 JSON 으로 쓴다.
+     * - 주문 수와 상관없이 힙 사용량이 일정하다.
+     * - 첫 번째 주문이 완성되면 바로 응답을 내보내므로 첫 바이트가 마지막 주문까지 기다리지 않는다.
+     *
+     * @param response
+     * @throws IOException
+     */
+    @GetMapping(value = "/api/v6.1/orders", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void ordersV6_stream(HttpServletResponse response) throws IOException {
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        // 주문마다 flush 하면 작은 패킷이 너무 많아지므로 첫 주문만 바로 내보내고 이후는 버퍼에 맡긴다.
+        ObjectWriter writer = objectMapper.writerFor(OrderQueryDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+
+            AtomicBoolean first = new AtomicBoolean(true);
+
+            orderQueryService.streamOrders(order -> {
+                try {
+                    writer.writeValue(generator, order);
+
+                    if (first.getAndSet(false)) {
+                        generator.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * 주문 전체 내보내기 (NDJSON)
+     *
+     * V2 는 findAllByString() 의 최대 1000건 제한에 걸리고, 전체를 List 로 올려야 한다.
+     * forward-only 커서로 주문을 읽고, 한 줄에 주문 하나씩 바로 응답에 쓴다.
+     * chunkSize 건마다 영속성 컨텍스트를 비우므로 주문이 수천만 건이어도 메모리 사용량이 일정하다.
+     *
+     * @param fetchSize JDBC fetch size (1 ~ 10000)
+     * @param chunkSize 영속성 컨텍스트를 비우는 주기 (1 ~ 10000, 한 chunk 는 메모리에 올라가므로 제한한다.)
+     * @param response
+     * @throws IOException
+     */
+    @GetMapping(value = "/api/orders/export.ndjson", produces = NDJSON_VALUE)
+    public void exportOrders(
+            @RequestParam(value = "fetchSize", defaultValue = "1000") @Min(1) @Max(10000) int fetchSize,
+            @RequestParam(value = "chunkSize", defaultValue = "1000") @Min(1) @Max(10000) int chunkSize,
+            HttpServletResponse response) throws IOException
+    {
+        response.setContentType(NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        ObjectWriter writer = objectMapper.writerFor(OrderDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n");
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+
+            orderService.exportOrders(fetchSize, chunkSize, order -> {
+                try {
+                    writer.writeValue(generator, new OrderDto(order));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            generator.writeRaw('\n');
+        }
+    }
+
+    /**
+     * 여러 상품 주문 (장바구니 결제)
+     *
+     * 요청한 상품들을 주문 하나로 묶어서 한 트랜잭션에서 저장한다.
+     * 같은 상품이 여러 번 있으면 수량을 합친다.
+     *
+     * @param request
+     * @return
+     */
+    @PostMapping("/api/v1/orders")
+    public CreateOrderResponse createOrder(@RequestBody @Valid CreateOrderRequest request) {
+
+        Long orderId = orderService.order(request.getMemberId(), request.countByItemId());
+
+        return new CreateOrderResponse(orderId);
+    }
+
+    /**
+     * 여러 상품 주문 V2 (그룹 커밋)
+     *
+     * jpashop.group-commit.enabled 가 true 면 동시에 들어온 주문들을 모아서 한 트랜잭션으로 저장한다. (OrderGroupCommitter)
+     * 저장을 기다리는 동안 요청 스레드를 붙잡지 않도록 비동기(CompletableFuture)로 응답한다.
+     * 그룹 커밋을 끄면 V1 과 같이 주문마다 커밋한다.
+     *
+     * @param request
+     * @return
+     */
+    @PostMapping("/api/v2/orders")
+    public CompletableFuture<CreateOrderResponse> createOrderV2(@RequestBody @Valid CreateOrderRequest request) {
+
+        OrderGroupCommitter committer = orderGroupCommitter.getIfAvailable();
+
+        if (committer == null) {
+            return CompletableFuture.completedFuture(createOrder(request));
+        }
+
+        return committer.submit(request.getMemberId(), request.countByItemId())
+                .thenApply(CreateOrderResponse::new);
+    }
+
+    @Data
+    static class CreateOrderRequest {
+
+        @NotNull
+        private Long memberId;
+
+        @Valid
+        @NotEmpty
+        private List<OrderLineRequest> orderItems;
+
+        /**
+         * 같은 상품이 여러 번 있으면 수량을 합친다.
+         *
+         * @return 상품 식별자별 주문 수량
+         */
+        Map<Long, Integer> countByItemId() {
+
+            Map<Long, Integer> countByItemId = new TreeMap<>();
+
+            for (OrderLineRequest line : orderItems) {
+                countByItemId.merge(line.getItemId(), line.getCount(), Integer::sum);
+            }
+
+            return countByItemId;
+        }
+    }
+
+    @Data
+    static class OrderLineRequest {
+
+        @NotNull
+        private Long itemId;
+
+        @Positive
+        private int count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CreateOrderResponse {
+
+        private Long orderId;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CursorResult<T> {
+
+        private T data;
+        private String nextCursor;
     }
 
     @Getter
@@ -3,17 +3,22 @@ package jpabook.jpashop.api;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.FetchPlans;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
-import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import jpabook.jpashop.repository.order.query.OrderField;
+import jpabook.jpashop.repository.order.query.OrderFieldQueryRepository;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -27,8 +32,11 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class OrderSimpleApiController {
 
+    private static final Set<OrderField> SIMPLE_ORDER_FIELDS = EnumSet.complementOf(EnumSet.of(OrderField.ORDER_ITEMS));
+
     private final OrderRepository orderRepository;
     private final OrderSimpleQueryRepository orderSimpleQueryRepository;
+    private final OrderFieldQueryRepository orderFieldQueryRepository;
 
     /**
      * V1
@@ -102,13 +110,14 @@ public class OrderSimpleApiController {
      * 엔티티를 페치 조인(fetch join)을 사용해서 쿼리 1번에 조회
      *
      * 페치 조인으로 order -> member, order -> delivery 는 이미 조회 된 상태 이므로 지연로딩 X
+     * 주문 상품은 사용하지 않으므로 FetchPlans.ORDER_MEMBER_DELIVERY 만 선언한다.
      *
      * @return
      */
     @GetMapping("/api/v3/simple-orders")
     public List<SimpleOrderDto> ordersV3() {
 
-        List<Order> orders = orderRepository.findAllWithMemberDelivery();
+        List<Order> orders = orderRepository.findAll(FetchPlans.ORDER_MEMBER_DELIVERY);
 
         List<SimpleOrderDto> result = orders.stream()
                 .map(o -> new SimpleOrderDto(o))
@@ -134,10 +143,19 @@ public class OrderSimpleApiController {
      * - 3) 그래도 안되면 DTO로 직접 조회하는 방법을 사용한다.
      * - 4) 최후의 방법은 JPA가 제공하는 네이티브 SQL이나 스프링 JDBC Template을 사용해서 SQL을 직접 사용한다.
      *
+     * fields 파라미터 (예: fields=orderId,orderStatus,orderDate)
+     * 요청한 필드만 SELECT 하고, 필요 없는 회원/배송 조인은 생략한다.
+     * (선택 가능 : orderId, name, orderDate, orderStatus, address / orderId 는 항상 포함)
+     *
+     * @param fields
      * @return
      */
     @GetMapping("/api/v4/simple-orders")
-    public List<OrderSimpleQueryDto> orderV4() {
+    public List<?> orderV4(@RequestParam(value = "fields", required = false) String fields) {
+
+        if (fields != null) {
+            return orderFieldQueryRepository.findOrders(OrderField.parse(fields, SIMPLE_ORDER_FIELDS));
+        }
 
         return orderSimpleQueryRepository.findOrderDtos();
     }
@@ -0,0 +1,59 @@
+package jpabook.jpashop.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 애플리케이션 캐시 설정
+ *
+ * orderQueries : 주문 DTO 조회 결과 (V4, V5, V6)
+ * - 주문 생성/취소 등 조회 결과가 바뀌는 서비스 메서드에서 전체를 무효화한다. (@CacheEvict)
+ * - 최대 건수와 TTL 을 넘으면 제거한다. (jpashop.order-query.result-cache-*)
+ * - 적중률은 cache.gets{cache=orderQueries} 메트릭으로 확인한다.
+ *
+ * 캐시 어드바이스를 트랜잭션 어드바이스보다 바깥에 두어야 트랜잭션이 커밋된 뒤에 캐시를 무효화한다.
+ * (커밋 전에 무효화하면 그 사이에 다른 요청이 커밋 전 데이터로 캐시를 다시 채울 수 있다.)
+ *
+ * 커밋 후에 무효화해도 커밋 전에 조회를 시작한 요청이 무효화 뒤에 결과를 넣으면 변경 전 데이터가 다시 캐시된다.
+ * 이 결과는 다음 무효화나 TTL(jpashop.order-query.result-cache-ttl) 까지 남으므로, TTL 이 허용하는 최대 지연 시간이다.
+ *
+ * 읽기/쓰기 분리를 사용하면 무효화 직후의 조회가 복제 지연 때문에 변경 전 데이터를 읽을 수 있으므로,
+ * read-your-writes window 동안은 조회 결과를 캐시에 넣지 않는다. (ReplicaLagAwareCache)
+ *
+ * 캐시된 목록은 요청마다 같은 인스턴스를 돌려주므로 수정할 수 없는 목록으로 저장한다. (OrderQueryRepository)
+ */
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class CacheConfig {
+
+    public static final String ORDER_QUERIES = "orderQueries";
+
+    @Bean
+    public CacheManager cacheManager(OrderQueryProperties properties, DataSourceRoutingProperties routing) {
+
+        Duration replicaLagWindow = routing.isEnabled() ? routing.getReadYourWritesWindow() : Duration.ZERO;
+
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                return new ReplicaLagAwareCache(name, cache, isAllowNullValues(), replicaLagWindow);
+            }
+        };
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(properties.getResultCacheMaxSize())
+                .expireAfterWrite(properties.getResultCacheTtl())
+                .recordStats());
+        cacheManager.setCacheNames(List.of(ORDER_QUERIES));
+
+        return cacheManager;
+    }
+}
@@ -0,0 +1,39 @@
+package jpabook.jpashop.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.monitoring.ConnectionHoldTimeFilter;
+import jpabook.jpashop.monitoring.ConnectionHoldTimer;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * 요청별 JDBC 커넥션 점유 시간 측정
+ *
+ * 하이버네이트 세션 이벤트로 커넥션을 얻고 돌려준 시점을 기록하고, 서블릿 필터로 요청 단위 구간을 나눈다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "jpashop.connection-monitor", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ConnectionMonitorConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer connectionHoldTimerCustomizer() {
+        return properties -> properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, ConnectionHoldTimer.class.getName());
+    }
+
+    @Bean
+    public FilterRegistrationBean<ConnectionHoldTimeFilter> connectionHoldTimeFilter(MeterRegistry meterRegistry) {
+
+        FilterRegistrationBean<ConnectionHoldTimeFilter> registration =
+                new FilterRegistrationBean<>(new ConnectionHoldTimeFilter(meterRegistry));
+
+        // OSIV 인터셉터가 세션을 닫을 때(화면 렌더링 후) 돌려주는 커넥션까지 포함하도록 바깥쪽에 둔다.
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+
+        return registration;
+    }
+}
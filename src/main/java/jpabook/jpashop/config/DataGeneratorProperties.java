@@ -0,0 +1,69 @@
+package jpabook.jpashop.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 성능 테스트용 데이터 생성 설정 (jpashop.data-generator.*)
+ *
+ * enabled 가 true 면 애플리케이션 시작 시 InitDb 대신 DataGenerator 로 데이터를 생성한다.
+ * 같은 seed 와 설정이면 항상 같은 데이터를 만든다.
+ */
+@Getter @Setter
+@Component
+@ConfigurationProperties(prefix = "jpashop.data-generator")
+public class DataGeneratorProperties {
+
+    private boolean enabled = false;
+
+    private long seed = 42;
+
+    private int members = 10_000;
+
+    /**
+     * 상품 수 (Book, Album, Movie 를 번갈아 생성)
+     */
+    private int items = 1_000;
+
+    private int categories = 100;
+
+    private int orders = 100_000;
+
+    /**
+     * 주문당 상품 수 범위 (적은 쪽이 더 자주 나온다.)
+     */
+    private int minOrderLines = 1;
+    private int maxOrderLines = 5;
+
+    /**
+     * 상품 인기도 Zipf 지수 (0 이면 균등, 클수록 소수의 상품에 주문이 몰린다.)
+     */
+    private double itemPopularitySkew = 1.0;
+
+    /**
+     * 취소 주문 비율
+     */
+    private double cancelRatio = 0.1;
+
+    /**
+     * 취소되지 않은 주문 중 배송 완료 비율
+     */
+    private double deliveredRatio = 0.3;
+
+    /**
+     * 주문 일시를 최근 며칠 사이에 분포시킬지
+     */
+    private int orderDays = 365;
+
+    /**
+     * JDBC 배치 크기 (배치 하나를 트랜잭션 하나로 커밋)
+     */
+    private int batchSize = 1_000;
+
+    /**
+     * 동시에 insert 할 스레드 수 (스레드마다 커넥션을 사용하므로 커넥션 풀보다 작게)
+     */
+    private int threads = 4;
+}
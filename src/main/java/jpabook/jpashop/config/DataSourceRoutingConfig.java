@@ -0,0 +1,85 @@
+package jpabook.jpashop.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 읽기 전용 트랜잭션을 복제본으로 분산 (jpashop.datasource.routing.enabled=true 일 때만)
+ *
+ * 서비스는 클래스 레벨에 @Transactional(readOnly = true) 를 두고 있으므로
+ * 조회 메서드는 복제본으로, @Transactional 로 덮어쓴 변경 메서드는 원본으로 간다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "jpashop.datasource.routing", name = "enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    @Bean
+    public ReplicationLagGuard replicationLagGuard(DataSourceRoutingProperties routing) {
+        return new ReplicationLagGuard(routing.getReadYourWritesWindow());
+    }
+
+    /**
+     * 사용자별 마지막 쓰기 커밋 시각 (read-your-writes 쿠키)
+     */
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(ReplicationLagGuard replicationLagGuard) {
+
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(replicationLagGuard));
+
+        // OSIV 인터셉터, 서비스 트랜잭션보다 먼저 사용자를 연결한다.
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+
+        return registration;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties,
+                                                             DataSourceRoutingProperties routing,
+                                                             ReplicationLagGuard replicationLagGuard) {
+
+        DataSource primary = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+
+        List<DataSource> replicas = new ArrayList<>();
+
+        for (DataSourceRoutingProperties.Replica replica : routing.getReplicas()) {
+            DataSourceBuilder<HikariDataSource> builder = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(replica.getUrl())
+                    .username(replica.getUsername())
+                    .password(replica.getPassword());
+
+            // 지정하지 않으면 url 로 드라이버를 찾는다.
+            if (replica.getDriverClassName() != null) {
+                builder.driverClassName(replica.getDriverClassName());
+            }
+
+            replicas.add(builder.build());
+        }
+
+        return new ReplicaRoutingDataSource(primary, replicas, routing.getStrategy(), replicationLagGuard);
+    }
+
+    /**
+     * 트랜잭션의 읽기 전용 여부가 정해진 뒤 첫 SQL 을 실행할 때 실제 커넥션을 얻도록 지연시킨다.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
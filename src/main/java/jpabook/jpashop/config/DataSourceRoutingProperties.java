@@ -0,0 +1,41 @@
+package jpabook.jpashop.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 읽기/쓰기 DataSource 분리 설정 (jpashop.datasource.routing.*)
+ *
+ * 원본은 spring.datasource 설정을 그대로 사용한다.
+ */
+@Getter @Setter
+@Component
+@ConfigurationProperties(prefix = "jpashop.datasource.routing")
+public class DataSourceRoutingProperties {
+
+    private boolean enabled = false;
+
+    private ReplicaRoutingDataSource.Strategy strategy = ReplicaRoutingDataSource.Strategy.ROUND_ROBIN;
+
+    /**
+     * 쓴 사용자의 읽기를 커밋 후 원본으로 보내는 시간 (read-your-writes, 다른 사용자의 읽기는 영향 없음)
+     */
+    private Duration readYourWritesWindow = Duration.ofSeconds(1);
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Getter @Setter
+    public static class Replica {
+
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+    }
+}
@@ -0,0 +1,27 @@
+package jpabook.jpashop.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.service.OrderGroupCommitter;
+import jpabook.jpashop.service.OrderService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 주문 그룹 커밋
+ *
+ * 애플리케이션 종료 시 OrderGroupCommitter.close() 로 대기 중인 주문을 모두 처리한 후 종료한다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "jpashop.group-commit", name = "enabled", havingValue = "true")
+public class GroupCommitConfig {
+
+    @Bean
+    public OrderGroupCommitter orderGroupCommitter(OrderService orderService,
+                                                   GroupCommitProperties properties,
+                                                   MeterRegistry meterRegistry) {
+
+        return new OrderGroupCommitter(orderService, properties.getMaxBatchSize(), properties.getMaxWait(),
+                properties.getQueueCapacity(), meterRegistry);
+    }
+}
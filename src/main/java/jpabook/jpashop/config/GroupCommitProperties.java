@@ -0,0 +1,36 @@
+package jpabook.jpashop.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 주문 그룹 커밋 설정 (jpashop.group-commit.*)
+ *
+ * enabled 가 true 면 /api/v2/orders 주문을 모아서 한 트랜잭션으로 저장한다.
+ */
+@Getter @Setter
+@Component
+@ConfigurationProperties(prefix = "jpashop.group-commit")
+public class GroupCommitProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * 한 트랜잭션에 묶을 최대 주문 수
+     */
+    private int maxBatchSize = 64;
+
+    /**
+     * 첫 주문이 들어온 후 다른 주문을 기다리는 최대 시간 (주문이 적을 때 늘어나는 응답 시간의 상한)
+     */
+    private Duration maxWait = Duration.ofMillis(5);
+
+    /**
+     * 대기 큐 크기 (가득 차면 요청한 스레드에서 바로 주문한다.)
+     */
+    private int queueCapacity = 10_000;
+}
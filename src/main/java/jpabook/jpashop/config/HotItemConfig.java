@@ -0,0 +1,34 @@
+package jpabook.jpashop.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.StockReservationRepository;
+import jpabook.jpashop.stock.HotItemStock;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 인기 상품 메모리 재고
+ *
+ * 재고 예약 반영(HotItemStock.flush)을 주기적으로 실행하므로 스케줄링을 켠다.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(prefix = "jpashop.hot-item", name = "enabled", havingValue = "true")
+public class HotItemConfig {
+
+    @Bean
+    public HotItemStock hotItemStock(HotItemProperties properties,
+                                     ItemRepository itemRepository,
+                                     StockReservationRepository stockReservationRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry) {
+
+        return new HotItemStock(properties, itemRepository, stockReservationRepository,
+                new TransactionTemplate(transactionManager), meterRegistry);
+    }
+}
@@ -0,0 +1,46 @@
+package jpabook.jpashop.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 인기 상품(플래시 세일) 메모리 재고 설정 (jpashop.hot-item.*)
+ *
+ * enabled 가 true 면 itemIds 상품의 재고를 메모리 카운터에서 차감하고, 데이터베이스에는 주기적으로 모아서 반영한다.
+ * 카운터가 애플리케이션 메모리에 있으므로 애플리케이션을 하나만 띄울 때 사용한다.
+ */
+@Getter @Setter
+@Component
+@ConfigurationProperties(prefix = "jpashop.hot-item")
+public class HotItemProperties {
+
+    private boolean enabled = false;
+
+    private List<Long> itemIds = new ArrayList<>();
+
+    /**
+     * 상품마다 재고를 나눠 담을 카운터 수 (클수록 동시에 차감하는 스레드끼리 덜 부딪힌다.)
+     */
+    private int stripes = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 재고 예약을 item.stock_quantity 에 반영하는 주기
+     */
+    private Duration flushInterval = Duration.ofMillis(500);
+
+    /**
+     * 한 트랜잭션에서 반영할 재고 예약 수
+     */
+    private int flushBatchSize = 1_000;
+
+    /**
+     * 시작 직후 카운터가 준비(reconcile)될 때까지 인기 상품 주문을 기다리게 하는 최대 시간
+     */
+    private Duration readyTimeout = Duration.ofSeconds(10);
+}
@@ -0,0 +1,50 @@
+package jpabook.jpashop.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 주문 DTO 조회 설정 (jpashop.order-query.*)
+ */
+@Getter @Setter
+@Component
+@ConfigurationProperties(prefix = "jpashop.order-query")
+public class OrderQueryProperties {
+
+    /**
+     * 주문 상품 IN 쿼리 한 번에 바인딩할 주문 식별자 수
+     * 데이터베이스에 따라 IN 절 파라미터 수가 제한되므로 (예: Oracle 1000개) 그 이하로 설정한다.
+     */
+    private int itemChunkSize = 1000;
+
+    /**
+     * chunk 를 동시에 조회할 스레드 수
+     * 스레드마다 별도의 커넥션을 사용하므로 커넥션 풀 크기보다 충분히 작게 설정한다. (1 이면 순차 조회)
+     */
+    private int itemFetchThreads = 4;
+
+    /**
+     * chunk 를 동시에 조회할 수 있는 호출 수 (이를 넘는 호출은 자기 커넥션으로 순차 조회)
+     *
+     * 호출한 쪽은 커넥션을 잡은 채 조회 스레드를 기다리고, 조회 스레드도 같은 커넥션 풀에서 커넥션을 얻는다.
+     * 기다리는 호출이 커넥션을 모두 잡으면 조회 스레드가 커넥션을 얻지 못해 풀이 스스로 고갈되므로
+     * itemFetchMaxCallers + itemFetchThreads 가 커넥션 풀 크기를 넘지 않게 한다.
+     * (HikariCP 를 사용하면 시작 시 풀 크기 - itemFetchThreads 이하로 자동으로 줄인다.)
+     */
+    private int itemFetchMaxCallers = 4;
+
+    /**
+     * 주문 DTO 조회 결과 캐시 최대 건수
+     */
+    private long resultCacheMaxSize = 100;
+
+    /**
+     * 주문 DTO 조회 결과 캐시 유지 시간
+     * 주문 생성/취소 시에는 유지 시간과 상관없이 바로 무효화한다.
+     */
+    private Duration resultCacheTtl = Duration.ofMinutes(1);
+}
@@ -0,0 +1,40 @@
+package jpabook.jpashop.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * OSIV 를 끈 모드 (spring.jpa.open-in-view=false)
+ *
+ * 화면(OrderController, ItemController, MemberController)은 서비스 트랜잭션 안에서 화면에 필요한 데이터를 모두 조회하고,
+ * 트랜잭션이 끝나면 커넥션을 돌려준다. 템플릿을 렌더링하는 동안에는 커넥션을 잡지 않는다.
+ *
+ * jpashop.osiv.include-patterns 경로만 요청 끝까지 영속성 컨텍스트를 유지한다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "spring.jpa", name = "open-in-view", havingValue = "false")
+@RequiredArgsConstructor
+public class OsivConfig implements WebMvcConfigurer {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final OsivProperties properties;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+
+        if (properties.getIncludePatterns().isEmpty()) {
+            return;
+        }
+
+        OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
+        interceptor.setEntityManagerFactory(entityManagerFactory);
+
+        registry.addWebRequestInterceptor(interceptor).addPathPatterns(properties.getIncludePatterns());
+    }
+}
@@ -0,0 +1,24 @@
+package jpabook.jpashop.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * OSIV 를 끈 경우(spring.jpa.open-in-view=false)의 예외 설정 (jpashop.osiv.*)
+ */
+@Getter @Setter
+@Component
+@ConfigurationProperties(prefix = "jpashop.osiv")
+public class OsivProperties {
+
+    /**
+     * OSIV 를 끄더라도 영속성 컨텍스트를 요청 끝까지 유지할 경로
+     * 엔티티를 직접 반환하거나 컨트롤러에서 지연 로딩하는 API 예제(V1 ~ V3.2)가 동작하도록 기본값은 /api/**
+     */
+    private List<String> includePatterns = new ArrayList<>(List.of("/api/**"));
+}
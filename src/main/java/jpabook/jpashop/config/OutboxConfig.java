@@ -0,0 +1,54 @@
+package jpabook.jpashop.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.outbox.FileOutboxSink;
+import jpabook.jpashop.outbox.InMemoryOutboxSink;
+import jpabook.jpashop.outbox.LoggingOutboxSink;
+import jpabook.jpashop.outbox.OutboxRelay;
+import jpabook.jpashop.outbox.OutboxSink;
+import jpabook.jpashop.repository.OutboxEventRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Paths;
+
+/**
+ * 아웃박스 이벤트 전송
+ *
+ * 받을 곳은 jpashop.outbox.sink 로 고르고, OutboxSink 빈을 직접 등록하면 그 빈을 사용한다.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(prefix = "jpashop.outbox", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public OutboxSink outboxSink(OutboxProperties properties) {
+
+        switch (properties.getSink()) {
+            case FILE:
+                return new FileOutboxSink(Paths.get(properties.getFile()));
+            case MEMORY:
+                return new InMemoryOutboxSink();
+            default:
+                return new LoggingOutboxSink();
+        }
+    }
+
+    @Bean
+    public OutboxRelay outboxRelay(OutboxEventRepository outboxEventRepository,
+                                   OutboxSink outboxSink,
+                                   OutboxProperties properties,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry) {
+
+        return new OutboxRelay(outboxEventRepository, outboxSink, new TransactionTemplate(transactionManager),
+                properties.getBatchSize(), properties.getRetention(), meterRegistry);
+    }
+}
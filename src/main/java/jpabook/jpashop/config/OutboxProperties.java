@@ -0,0 +1,47 @@
+package jpabook.jpashop.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 아웃박스 이벤트 전송 설정 (jpashop.outbox.*)
+ *
+ * 이벤트 저장은 항상 하고, enabled 는 전송(OutboxRelay)만 켜고 끈다.
+ */
+@Getter @Setter
+@Component
+@ConfigurationProperties(prefix = "jpashop.outbox")
+public class OutboxProperties {
+
+    private boolean enabled = true;
+
+    private Sink sink = Sink.LOG;
+
+    /**
+     * sink 가 FILE 일 때 이벤트를 덧붙일 파일
+     */
+    private String file = "outbox/order-events.ndjson";
+
+    /**
+     * 한 번에 읽어서 전송할 이벤트 수
+     */
+    private int batchSize = 500;
+
+    /**
+     * 전송하지 않은 이벤트를 확인하는 주기
+     */
+    private Duration pollInterval = Duration.ofMillis(200);
+
+    /**
+     * 전송 완료한 이벤트를 보관하는 기간
+     */
+    private Duration retention = Duration.ofDays(1);
+
+    public enum Sink {
+        LOG, FILE, MEMORY
+    }
+}
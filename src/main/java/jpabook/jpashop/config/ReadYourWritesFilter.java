@@ -0,0 +1,71 @@
+package jpabook.jpashop.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 요청한 사용자의 마지막 쓰기 커밋 시각을 쿠키로 주고받아 ReplicationLagGuard 에 연결하는 필터
+ *
+ * 쓰기가 커밋되면 바로 쿠키를 내려주므로 주문 후 리다이렉트(POST -> GET /orders)에도 전달된다.
+ * 쿠키는 window 가 지나면 만료된다.
+ */
+@RequiredArgsConstructor
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE_NAME = "jpashop-last-write";
+
+    private final ReplicationLagGuard lagGuard;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        lagGuard.bind(lastWriteCommitMillis(request), commitMillis -> {
+            if (!response.isCommitted()) {
+                response.addCookie(cookie(commitMillis));
+            }
+        });
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            lagGuard.unbind();
+        }
+    }
+
+    private Cookie cookie(long commitMillis) {
+
+        Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(commitMillis));
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge((int) Math.max(1, (lagGuard.getWindowMillis() + 999) / 1000));
+
+        return cookie;
+    }
+
+    private static long lastWriteCommitMillis(HttpServletRequest request) {
+
+        if (request.getCookies() == null) {
+            return 0;
+        }
+
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+
+        return 0;
+    }
+}
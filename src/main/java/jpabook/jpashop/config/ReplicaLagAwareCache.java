@@ -0,0 +1,80 @@
+package jpabook.jpashop.config;
+
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.time.Duration;
+
+/**
+ * 무효화 직후에는 결과를 저장하지 않는 캐시 (읽기/쓰기 분리 시)
+ *
+ * 쓰기가 커밋되어 캐시를 무효화한 직후에 다른 사용자의 조회가 복제본으로 가면,
+ * 아직 복제되지 않은 변경 전 데이터로 캐시를 다시 채우고 TTL 동안 그 결과를 돌려주게 된다.
+ * 마지막 무효화 후 복제 지연 window(jpashop.datasource.routing.read-your-writes-window) 동안 조회한 결과는
+ * 호출한 쪽에만 돌려주고 캐시에는 넣지 않는다.
+ *
+ * window 가 0 이면 (읽기/쓰기 분리를 사용하지 않으면) 일반 CaffeineCache 와 같다.
+ */
+public class ReplicaLagAwareCache extends CaffeineCache {
+
+    private final long windowMillis;
+    private volatile long lastEvictMillis;
+
+    public ReplicaLagAwareCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+                                boolean allowNullValues, Duration window) {
+        super(name, cache, allowNullValues);
+        this.windowMillis = window.toMillis();
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (!isWithinWindow()) {
+            super.put(key, value);
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+
+        if (isWithinWindow()) {
+            return get(key);
+        }
+
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        markEvicted();
+        super.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        markEvicted();
+        return super.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        markEvicted();
+        super.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        markEvicted();
+        return super.invalidate();
+    }
+
+    /**
+     * 마지막 무효화 후 아직 window 가 지나지 않았는지
+     * @return
+     */
+    public boolean isWithinWindow() {
+        return windowMillis > 0 && System.currentTimeMillis() - lastEvictMillis < windowMillis;
+    }
+
+    private void markEvicted() {
+        lastEvictMillis = System.currentTimeMillis();
+    }
+}
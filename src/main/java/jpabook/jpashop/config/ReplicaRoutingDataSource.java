@@ -0,0 +1,146 @@
+package jpabook.jpashop.config;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 읽기 전용 트랜잭션은 복제본으로, 나머지는 원본으로 보내는 DataSource
+ *
+ * 트랜잭션이 읽기 전용인지는 커넥션을 실제로 얻는 시점에 판단하므로,
+ * 트랜잭션 속성이 정해진 뒤에 커넥션을 얻도록 반드시 LazyConnectionDataSourceProxy 로 감싸서 사용한다.
+ *
+ * 복제본 선택 전략
+ * - ROUND_ROBIN : 순서대로 돌아가며 선택
+ * - LEAST_LOADED : 현재 사용 중인 커넥션이 가장 적은 복제본 선택
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    public enum Strategy {
+        ROUND_ROBIN, LEAST_LOADED
+    }
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final Strategy strategy;
+    private final ReplicationLagGuard lagGuard;
+
+    private final AtomicInteger[] inUse;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas,
+                                    Strategy strategy, ReplicationLagGuard lagGuard) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas);
+        this.strategy = strategy;
+        this.lagGuard = lagGuard;
+
+        this.inUse = new AtomicInteger[replicas.size()];
+
+        for (int i = 0; i < inUse.length; i++) {
+            inUse[i] = new AtomicInteger();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+
+        if (!routeToReplica()) {
+            lagGuard.registerIfWriteTransaction();
+            return primary.getConnection();
+        }
+
+        int index = selectReplica();
+        inUse[index].incrementAndGet();
+
+        try {
+            return track(replicas.get(index).getConnection(), inUse[index]);
+        } catch (SQLException | RuntimeException e) {
+            inUse[index].decrementAndGet();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    /**
+     * 복제본별 사용 중인 커넥션 수
+     * @param index
+     * @return
+     */
+    public int getInUse(int index) {
+        return inUse[index].get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeIfPossible(primary);
+        for (DataSource replica : replicas) {
+            closeIfPossible(replica);
+        }
+    }
+
+    private boolean routeToReplica() {
+        return !replicas.isEmpty()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !lagGuard.isWithinWindow();
+    }
+
+    private int selectReplica() {
+
+        if (strategy == Strategy.LEAST_LOADED) {
+            int selected = 0;
+
+            for (int i = 1; i < inUse.length; i++) {
+                if (inUse[i].get() < inUse[selected].get()) {
+                    selected = i;
+                }
+            }
+
+            return selected;
+        }
+
+        return Math.floorMod(next.getAndIncrement(), replicas.size());
+    }
+
+    /**
+     * 커넥션을 닫을 때 사용 중인 커넥션 수를 줄이도록 감싼다.
+     */
+    private static Connection track(Connection target, AtomicInteger counter) {
+
+        AtomicBoolean closed = new AtomicBoolean();
+
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && closed.compareAndSet(false, true)) {
+                        counter.decrementAndGet();
+                    }
+
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    private static void closeIfPossible(DataSource dataSource) throws IOException {
+        if (dataSource instanceof Closeable) {
+            ((Closeable) dataSource).close();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package jpabook.jpashop.config;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.LongConsumer;
+
+/**
+ * 복제 지연 보호 (read-your-writes)
+ *
+ * 쓰기 트랜잭션(예: 주문)이 커밋된 직후에는 복제본에 아직 반영되지 않았을 수 있다.
+ * 쓴 사용자(writer)가 마지막으로 쓰기를 커밋한 후 window 동안은 그 사용자의 읽기 전용 트랜잭션도 원본으로 보내서,
+ * 주문 직후 주문 목록으로 이동했을 때 방금 만든 주문이 보이지 않는 일이 없도록 한다.
+ *
+ * 마지막 커밋 시각은 사용자별로 관리한다. (ReadYourWritesFilter 가 요청마다 쿠키 값으로 bind 한다.)
+ * 다른 사용자의 쓰기는 영향을 주지 않으므로, 주문이 계속 들어와도 나머지 사용자의 읽기는 복제본으로 간다.
+ * 사용자가 bind 되지 않은 스레드(스케줄러 등)의 읽기는 항상 복제본으로 간다.
+ *
+ * window 는 운영 환경에서 관측한 최대 복제 지연보다 크게 잡는다. (0 이면 사용하지 않음)
+ */
+public class ReplicationLagGuard {
+
+    private final long windowMillis;
+    private final ThreadLocal<Writer> currentWriter = new ThreadLocal<>();
+
+    public ReplicationLagGuard(Duration window) {
+        this.windowMillis = window.toMillis();
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * 현재 스레드에 사용자 연결
+     *
+     * @param lastWriteCommitMillis 사용자가 마지막으로 쓰기를 커밋한 시각 (epoch millis, 없으면 0)
+     * @param onWriteCommit 이 사용자의 쓰기가 커밋되면 커밋 시각을 받는다. (쿠키 갱신 등)
+     */
+    public void bind(long lastWriteCommitMillis, LongConsumer onWriteCommit) {
+        // 미래 시각(위조된 쿠키 등)으로 계속 원본에서 읽지 않도록 현재 시각을 넘지 않게 한다.
+        currentWriter.set(new Writer(Math.min(lastWriteCommitMillis, System.currentTimeMillis()), onWriteCommit));
+    }
+
+    public void unbind() {
+        currentWriter.remove();
+    }
+
+    /**
+     * 현재 사용자의 마지막 쓰기 커밋 후 아직 window 가 지나지 않았는지
+     * @return
+     */
+    public boolean isWithinWindow() {
+
+        Writer writer = currentWriter.get();
+
+        return windowMillis > 0 && writer != null
+                && System.currentTimeMillis() - writer.lastWriteCommitMillis < windowMillis;
+    }
+
+    /**
+     * 현재 트랜잭션이 쓰기 트랜잭션이면 커밋 시점을 현재 사용자에게 기록하도록 등록
+     */
+    public void registerIfWriteTransaction() {
+
+        Writer writer = currentWriter.get();
+
+        if (windowMillis <= 0
+                || writer == null
+                || !TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                long now = System.currentTimeMillis();
+                writer.lastWriteCommitMillis = now;
+                writer.onWriteCommit.accept(now);
+            }
+        });
+    }
+
+    private static final class Writer {
+
+        private volatile long lastWriteCommitMillis;
+        private final LongConsumer onWriteCommit;
+
+        private Writer(long lastWriteCommitMillis, LongConsumer onWriteCommit) {
+            this.lastWriteCommitMillis = lastWriteCommitMillis;
+            this.onWriteCommit = onWriteCommit;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package jpabook.jpashop.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.monitoring.SqlStatementCountFilter;
+import jpabook.jpashop.monitoring.SqlStatementCounter;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * 요청별 SQL 수 집계 및 N+1 탐지
+ *
+ * 하이버네이트 StatementInspector 로 SQL 을 세고, 서블릿 필터로 요청 단위 구간을 나눈다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "jpashop.sql-monitor", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SqlMonitorConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounterCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlStatementCounter());
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlStatementCountFilter> sqlStatementCountFilter(MeterRegistry meterRegistry,
+                                                                                   SqlMonitorProperties properties) {
+
+        FilterRegistrationBean<SqlStatementCountFilter> registration = new FilterRegistrationBean<>(
+                new SqlStatementCountFilter(meterRegistry, properties.getRepeatThreshold()));
+
+        // 다른 필터(OSIV 등)에서 실행하는 SQL 까지 포함하도록 가장 바깥에 둔다.
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+
+        return registration;
+    }
+}
@@ -0,0 +1,22 @@
+package jpabook.jpashop.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 요청별 SQL 수 집계 및 N+1 탐지 설정 (jpashop.sql-monitor.*)
+ */
+@Getter @Setter
+@Component
+@ConfigurationProperties(prefix = "jpashop.sql-monitor")
+public class SqlMonitorProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 한 요청에서 같은 모양의 SQL 이 이 횟수 이상 실행되면 N+1 로 의심한다.
+     */
+    private int repeatThreshold = 5;
+}
@@ -1,12 +1,13 @@
 package jpabook.jpashop.controller;
 
 import jpabook.jpashop.domain.Member;
-import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.repository.OrderSearch;
 import jpabook.jpashop.service.ItemService;
 import jpabook.jpashop.service.MemberService;
 import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.query.OrderListDto;
+import jpabook.jpashop.service.query.OrderQueryService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -21,6 +22,7 @@ public class OrderController {
     private final OrderService orderService;
     private final MemberService memberService;
     private final ItemService itemService;
+    private final OrderQueryService orderQueryService;
 
     /**
      * 주문 페이지로 이동
@@ -62,6 +64,7 @@ public class OrderController {
 
     /**
      * 주문 목록 검색 페이지로 이동
+     * 뷰에서 지연 로딩하지 않도록 화면에 필요한 값만 DTO 로 조회한다. (OSIV 를 꺼도 동작)
      *
      * @param orderSearch
      * @param model
@@ -70,7 +73,7 @@ public class OrderController {
     @GetMapping("/orders")
     public String orderList(@ModelAttribute("orderSearch")OrderSearch orderSearch, Model model) {
 
-        List<Order> orders = orderService.findOrders(orderSearch);
+        List<OrderListDto> orders = orderQueryService.findOrderList(orderSearch);
 
         model.addAttribute("orders", orders);
 
@@ -3,6 +3,8 @@ package jpabook.jpashop.domain;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.LazyToOne;
+import org.hibernate.annotations.LazyToOneOption;
 
 import javax.persistence.*;
 
@@ -15,12 +17,17 @@ import static javax.persistence.FetchType.*;
 @Getter @Setter
 public class Delivery {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "delivery_seq")
+    @SequenceGenerator(name = "delivery_seq", sequenceName = "delivery_seq", allocationSize = 50)
     @Column(name = "delivery_id")
     private Long id;
 
+    // mappedBy 쪽 @OneToOne 은 프록시로 지연 로딩할 수 없어서 배송을 조회할 때마다 주문도 함께 조회한다.
+    // 바이트코드 향상(build.gradle)으로 필드 자체를 지연 로딩한다. (NO_PROXY : 프록시 없이 getOrder() 호출 시 조회)
     @JsonIgnore
     @OneToOne(mappedBy = "delivery", fetch = LAZY)
+    @LazyToOne(LazyToOneOption.NO_PROXY)
     private Order order;
 
     @Embedded
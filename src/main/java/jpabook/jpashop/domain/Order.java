@@ -4,6 +4,7 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.Hibernate;
 import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.*;
@@ -17,12 +18,32 @@ import static javax.persistence.FetchType.LAZY;
  * 주문 엔티티
  */
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // 커서 페이징 (orderDate, order_id 순 탐색)
+        @Index(name = "idx_orders_order_date", columnList = "orderDate, order_id"),
+        // 주문 총액 범위 검색, 총액 정렬 (OrderSearchRepository)
+        @Index(name = "idx_orders_total_price", columnList = "totalPrice, order_id")
+})
+// 조회 모양 (FetchPlans.ORDER_MEMBER_DELIVERY, FetchPlans.ORDER_ITEMS)
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = "Order.withMemberDelivery", attributeNodes = {
+                @NamedAttributeNode("member"),
+                @NamedAttributeNode("delivery")
+        }),
+        @NamedEntityGraph(name = "Order.withItems", attributeNodes = {
+                @NamedAttributeNode("member"),
+                @NamedAttributeNode("delivery"),
+                @NamedAttributeNode(value = "orderItems", subgraph = "orderItems")
+        }, subgraphs = @NamedSubgraph(name = "orderItems", attributeNodes = @NamedAttributeNode("item")))
+})
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED) // 서비스에서 무분별한 객체 생성 방지
 public class Order {
 
-    @Id @GeneratedValue
+    // 식별자를 시퀀스에서 50개씩 미리 할당받아 주문마다 시퀀스를 조회하지 않는다. (pooled)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     @Column(name = "order_id")
     private Long id;
 
@@ -43,13 +64,30 @@ public class Order {
     @Enumerated(EnumType.STRING)
     private OrderStatus status; // 주문 상태 [ORDER, CANCLE]
 
+    /**
+     * 전체 주문 가격 (주문 상품 가격 * 수량의 합)
+     *
+     * 주문 상품을 조회하지 않고 총액을 보여주거나 검색, 정렬할 수 있도록 역정규화해서 저장한다.
+     * 주문 상품을 추가할 때(addOrderItem) 더한다. 취소해도 주문 금액은 그대로 남으므로,
+     * 취소한 주문을 빼야 하는 집계나 검색은 주문 상태(status)로 거른다.
+     */
+    @Setter(AccessLevel.NONE)
+    private int totalPrice;
+
     /**
      * 양방향 연관 관계 메서드
+     *
+     * 회원의 주문 목록(member.orders)은 이미 로딩된 경우에만 추가한다.
+     * 추가하려고 지연 로딩 컬렉션을 초기화하면 회원의 주문 내역 전체를 조회하므로, 주문이 많은 회원일수록 주문이 느려진다.
+     * 로딩되지 않은 컬렉션은 나중에 데이터베이스에서 읽을 때 이번 주문도 함께 읽는다. (연관관계의 주인은 Order.member)
      * @param member
      */
     public void setMember(Member member) {
         this.member = member;
-        member.getOrders().add(this);
+
+        if (Hibernate.isInitialized(member.getOrders())) {
+            member.getOrders().add(this);
+        }
     }
 
     /**
@@ -59,6 +97,7 @@ public class Order {
     public void addOrderItem(OrderItem orderItem) {
         orderItems.add(orderItem);
         orderItem.setOrder(this);
+        totalPrice += orderItem.getTotalPrice();
     }
 
     /**
@@ -98,6 +137,7 @@ public class Order {
     /**
      * 비즈니스 로직
      * 주문 취소 시 사용
+     * 취소한 수량만큼의 재고 복구는 주문 서비스에서 재고 서비스로 처리한다. (StockService.addStock)
      */
     public void cancel() {
         // 만약 이미 배송을 완료한 상품이면 주문을 취소하지 못하도록 예외를 발생시킨다.
@@ -106,30 +146,5 @@ public class Order {
         }
 
         this.setStatus(OrderStatus.CANCLE);
-
-        for (OrderItem orderItem : orderItems) {
-            orderItem.cancel();
-        }
-    }
-
-    /**
-     * 조회 로직
-     * 전체 주문 가격 조회
-     * 전체 주문 가격을 알려면 각각의 주문 상품 가격을 알아야 한다.
-     * 연관된 주문 상품들의 가격을 조회해서 더한 값을 반환
-     * 실무에서는 주로 주문에 전체 주문 가격 필드를 두고 역정규화 한다.
-     * @return
-     */
-    public int getTotalPrice() {
-        int totalPrice = 0;
-
-        for (OrderItem orderItem : orderItems) {
-            totalPrice += orderItem.getTotalPrice();
-        }
-
-        return totalPrice;
-
-        // 위 내용을 한줄로 요약 가능
-//        return orderItems.stream().mapToInt(OrderItem::getTotalPrice).sum();
     }
 }
\ No newline at end of file
@@ -19,7 +19,9 @@ import static javax.persistence.FetchType.LAZY;
 @NoArgsConstructor(access = AccessLevel.PROTECTED) // 서비스에서 무분별한 객체 생성 방지
 public class OrderItem {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq")
+    @SequenceGenerator(name = "order_item_seq", sequenceName = "order_item_seq", allocationSize = 50)
     @Column(name = "order_item_id")
     private Long id;
 
@@ -50,20 +52,12 @@ public class OrderItem {
          orderItem.setOrderPrice(orderPrice);
          orderItem.setCount(count);
 
-         // 주문한 수량만큼 상품의 재고를 줄인다.
-         item.removeStock(count);
+         // 재고는 엔티티에서 줄이지 않고, 주문 서비스에서 재고 서비스로 차감한다. (StockService.removeStock)
+         // 엔티티의 재고를 읽고 빼서 변경 감지로 저장하면 동시 주문 시 변경을 덮어써서 초과 판매가 생긴다.
 
          return orderItem;
     }
 
-    /**
-     * 비즈니스 로직
-     * 주문 취소 시 취소한 주문 수량만큼 상품의 재고를 증가시킨다.
-     */
-    public void cancel() {
-        getItem().addStock(count);
-    }
-
     /**
      * 조회 로직
      * 주문 상품 전체 가격 조회
@@ -0,0 +1,101 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 아웃박스 이벤트 엔티티
+ *
+ * 주문/주문 취소를 다른 시스템에 알릴 이벤트를 주문과 같은 트랜잭션에서 저장한다.
+ * 주문이 커밋되면 이벤트도 반드시 남고, 롤백되면 이벤트도 남지 않는다.
+ * 실제 전송은 OutboxRelay 가 따로 모아서 하므로 주문 응답 시간에는 INSERT 한 번(배치)만 더해진다.
+ */
+@Entity
+@Table(indexes = {
+        // 전송하지 않은 이벤트를 오래된 순으로 조회 (delivered_at IS NULL ORDER BY outbox_event_id)
+        @Index(name = "idx_outbox_event_delivered_at", columnList = "deliveredAt, outbox_event_id")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+    @SequenceGenerator(name = "outbox_event_seq", sequenceName = "outbox_event_seq", allocationSize = 50)
+    @Column(name = "outbox_event_id")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private OutboxEventType type;
+
+    private Long orderId;
+
+    @Lob
+    private String payload; // JSON
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime deliveredAt; // 전송 전에는 null
+
+    /**
+     * 생성 메서드
+     * 주문 시 사용
+     * @param order
+     * @return
+     */
+    public static OutboxEvent orderPlaced(Order order) {
+        return create(OutboxEventType.ORDER_PLACED, order);
+    }
+
+    /**
+     * 생성 메서드
+     * 주문 취소 시 사용
+     * @param order
+     * @return
+     */
+    public static OutboxEvent orderCanceled(Order order) {
+        return create(OutboxEventType.ORDER_CANCELED, order);
+    }
+
+    private static OutboxEvent create(OutboxEventType type, Order order) {
+
+        OutboxEvent event = new OutboxEvent();
+
+        event.type = type;
+        event.orderId = order.getId();
+        event.payload = payload(type, order);
+        event.createdAt = LocalDateTime.now();
+
+        return event;
+    }
+
+    /**
+     * 주문 정보는 숫자, enum, 날짜뿐이므로 이스케이프 없이 JSON 을 만든다.
+     */
+    private static String payload(OutboxEventType type, Order order) {
+
+        StringBuilder json = new StringBuilder(128)
+                .append("{\"type\":\"").append(type)
+                .append("\",\"orderId\":").append(order.getId())
+                .append(",\"memberId\":").append(order.getMember().getId())
+                .append(",\"status\":\"").append(order.getStatus())
+                .append("\",\"orderDate\":\"").append(order.getOrderDate())
+                .append("\",\"orderItems\":[");
+
+        for (int i = 0; i < order.getOrderItems().size(); i++) {
+            OrderItem orderItem = order.getOrderItems().get(i);
+
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"itemId\":").append(orderItem.getItem().getId())
+                    .append(",\"orderPrice\":").append(orderItem.getOrderPrice())
+                    .append(",\"count\":").append(orderItem.getCount())
+                    .append('}');
+        }
+
+        return json.append("]}").toString();
+    }
+}
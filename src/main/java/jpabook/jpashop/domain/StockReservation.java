@@ -0,0 +1,47 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/**
+ * 재고 예약 엔티티
+ *
+ * 인기 상품(HotItemStock)은 주문할 때 item 재고를 바로 차감하지 않고, 주문과 같은 트랜잭션에서 예약만 저장한다.
+ * 예약은 주기적으로 모아서 item.stock_quantity 에 반영한 후 삭제한다.
+ * 주문과 함께 커밋되므로 반영하기 전에 애플리케이션이 종료되어도 다음 시작 시 반영할 수 있다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_reservation_seq")
+    @SequenceGenerator(name = "stock_reservation_seq", sequenceName = "stock_reservation_seq", allocationSize = 50)
+    @Column(name = "stock_reservation_id")
+    private Long id;
+
+    @Column(name = "item_id")
+    private Long itemId; // 상품을 조회하지 않도록 식별자만 저장
+
+    private int quantity; // 차감할 수량 (주문 취소로 되돌리는 경우 음수)
+
+    /**
+     * 생성 메서드
+     * @param itemId
+     * @param quantity
+     * @return
+     */
+    public static StockReservation create(Long itemId, int quantity) {
+
+        StockReservation reservation = new StockReservation();
+
+        reservation.itemId = itemId;
+        reservation.quantity = quantity;
+
+        return reservation;
+    }
+}
@@ -1,10 +1,11 @@
 package jpabook.jpashop.domain.item;
 
 import jpabook.jpashop.domain.Category;
-import jpabook.jpashop.exception.NotEnoughStockException;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -12,9 +13,14 @@ import java.util.List;
 
 /**
  * 상품 엔티티
+ *
+ * 주문할 때마다 같은 상품을 식별자로 반복 조회하므로 2차 캐시에 보관한다.
+ * SINGLE_TABLE 상속이므로 하위 타입(Album, Book, Movie)도 같은 캐시 영역을 사용한다.
  */
 //@BatchSize(size = 100) // 개별 최적화 (엔티티는 엔티티 클래스에 적용)
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter @Setter
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "dtype")
@@ -30,27 +36,4 @@ public abstract class Item {
 
     @ManyToMany(mappedBy = "items")
     private List<Category> categories = new ArrayList<>();
-
-    /**
-     * 비즈니스 로직
-     * stock 증가
-     * @param quantity
-     */
-    public void addStock(int quantity) {
-        this.stockQuantity += quantity;
-    }
-
-    /**
-     * 비즈니스 로직
-     * stock 감소
-     */
-    public void removeStock(int quantity) {
-        int restStock = this.stockQuantity - quantity;
-
-        if (restStock < 0) {
-            throw new NotEnoughStockException("need more stock");
-        }
-
-        this.stockQuantity = restStock;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package jpabook.jpashop.exception;
+
+/**
+ * 요청 값이 잘못된 경우 (존재하지 않는 회원/상품, 지원하지 않는 필드, 잘못된 커서 등)
+ *
+ * API 에서는 400 으로 응답한다. (ApiExceptionHandler)
+ * 내부 오류로 생긴 IllegalArgumentException 까지 400 으로 응답하지 않도록, 요청 값을 확인하는 곳에서만 사용한다.
+ */
+public class InvalidRequestException extends IllegalArgumentException {
+
+    public InvalidRequestException() {
+        super();
+    }
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+
+    public InvalidRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public InvalidRequestException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,412 @@
+package jpabook.jpashop.generator;
+
+import jpabook.jpashop.config.DataGeneratorProperties;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 성능 테스트용 데이터 생성
+ *
+ * InitDb 처럼 em.persist() 로 한 건씩 저장하면 엔티티마다 영속성 컨텍스트 관리, 식별자 조회가 필요해서 수백만 건을 만들 수 없다.
+ * 식별자를 미리 구간으로 나눠 직접 부여하고, JDBC 배치 insert 로 여러 스레드에서 동시에 저장한다.
+ * 끝나면 식별자 시퀀스들을 생성한 식별자 다음으로 옮겨서 이후 JPA 로 저장하는 엔티티와 겹치지 않게 한다.
+ *
+ * 분포
+ * - 상품 인기도 : Zipf (소수의 상품에 주문이 몰린다.)
+ * - 주문당 상품 수 : minOrderLines ~ maxOrderLines (적은 쪽이 더 자주 나온다.)
+ * - 주문 상태 : cancelRatio 만큼 취소, 나머지 중 deliveredRatio 만큼 배송 완료
+ * - 상품 종류 : Book, Album, Movie 를 번갈아 생성
+ *
+ * 배치마다 seed 와 배치 번호로 난수를 만들기 때문에 스레드 수와 상관없이 같은 seed 면 같은 데이터가 만들어진다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DataGenerator implements ApplicationRunner {
+
+    private static final String[] SEQUENCES = {"hibernate_sequence", "orders_seq", "delivery_seq", "order_item_seq"};
+    private static final int MAX_ALLOCATION_SIZE = 50; // @SequenceGenerator allocationSize 중 가장 큰 값
+    private static final String[] CITIES = {"서울", "부산", "인천", "대구", "대전", "광주", "울산", "수원", "창원", "고양"};
+
+    private static final long MEMBER_STREAM = 1;
+    private static final long ITEM_STREAM = 2;
+    private static final long CATEGORY_STREAM = 3;
+    private static final long ORDER_STREAM = 4;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final DataGeneratorProperties properties;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (properties.isEnabled()) {
+            generate(properties);
+        }
+    }
+
+    /**
+     * 설정대로 데이터 생성
+     * 이미 데이터가 있으면 기존 식별자 다음부터 추가한다.
+     *
+     * @param settings
+     */
+    public void generate(DataGeneratorProperties settings) {
+
+        validate(settings);
+
+        long started = System.nanoTime();
+
+        IdLayout ids = new IdLayout(nextId(), settings);
+        int[] itemPrices = itemPrices(settings);
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, settings.getThreads()));
+
+        try {
+            insertCategories(transaction, ids, settings);
+
+            runBatches(executor, "member", settings.getMembers(), settings, (batch, from, to) ->
+                    transaction.executeWithoutResult(status -> insertMembers(ids, from, to)));
+
+            runBatches(executor, "item", settings.getItems(), settings, (batch, from, to) ->
+                    transaction.executeWithoutResult(status -> insertItems(ids, itemPrices, settings, batch, from, to)));
+
+            ZipfDistribution popularity = new ZipfDistribution(settings.getItems(), settings.getItemPopularitySkew());
+            ZipfDistribution lines = new ZipfDistribution(
+                    settings.getMaxOrderLines() - settings.getMinOrderLines() + 1, 1.0);
+            LocalDateTime now = LocalDateTime.now();
+
+            runBatches(executor, "order", settings.getOrders(), settings, (batch, from, to) ->
+                    transaction.executeWithoutResult(status ->
+                            insertOrders(ids, itemPrices, popularity, lines, now, settings, batch, from, to)));
+        } finally {
+            executor.shutdown();
+        }
+
+        restartSequences(ids.end);
+
+        log.info("데이터 생성 완료 : 회원 {}, 상품 {}, 카테고리 {}, 주문 {} ({}ms)",
+                settings.getMembers(), settings.getItems(), settings.getCategories(), settings.getOrders(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static void validate(DataGeneratorProperties settings) {
+
+        if (settings.getMinOrderLines() < 1 || settings.getMinOrderLines() > settings.getMaxOrderLines()) {
+            throw new IllegalArgumentException("주문당 상품 수 범위가 잘못되었습니다. (1 <= minOrderLines <= maxOrderLines)");
+        }
+
+        if (settings.getOrders() > 0 && (settings.getMembers() == 0 || settings.getItems() == 0)) {
+            throw new IllegalArgumentException("주문을 생성하려면 회원과 상품이 1개 이상 있어야 합니다.");
+        }
+    }
+
+    private void insertCategories(TransactionTemplate transaction, IdLayout ids, DataGeneratorProperties settings) {
+
+        int categories = settings.getCategories();
+
+        if (categories == 0) {
+            return;
+        }
+
+        int roots = Math.max(1, categories / 10);
+        SplittableRandom random = random(settings, CATEGORY_STREAM, 0);
+        List<Object[]> rows = new ArrayList<>(categories);
+
+        // 부모 카테고리를 먼저 insert
+        for (int i = 0; i < categories; i++) {
+            Long parentId = i < roots ? null : ids.categoryBase + random.nextInt(roots);
+            rows.add(new Object[]{ids.categoryBase + i, "category" + i, parentId});
+        }
+
+        transaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                "insert into category (category_id, name, parent_id) values (?, ?, ?)", rows));
+    }
+
+    private void insertMembers(IdLayout ids, long from, long to) {
+
+        List<Object[]> rows = new ArrayList<>((int) (to - from));
+
+        for (long i = from; i < to; i++) {
+            rows.add(new Object[]{ids.memberBase + i, "member" + i, cityOf(i), streetOf(i), zipcodeOf(i)});
+        }
+
+        jdbcTemplate.batchUpdate(
+                "insert into member (member_id, name, city, street, zipcode) values (?, ?, ?, ?, ?)", rows);
+    }
+
+    private void insertItems(IdLayout ids, int[] itemPrices, DataGeneratorProperties settings,
+                             int batch, long from, long to) {
+
+        SplittableRandom random = random(settings, ITEM_STREAM, batch);
+        List<Object[]> items = new ArrayList<>((int) (to - from));
+        List<Object[]> categoryItems = new ArrayList<>();
+
+        for (long i = from; i < to; i++) {
+            long itemId = ids.itemBase + i;
+            int price = itemPrices[(int) i];
+            int stockQuantity = 100 + random.nextInt(10_000);
+
+            switch ((int) (i % 3)) {
+                case 0:
+                    items.add(new Object[]{"B", itemId, "book" + i, price, stockQuantity,
+                            "author" + (i % 1000), "isbn-" + i, null, null, null, null});
+                    break;
+                case 1:
+                    items.add(new Object[]{"A", itemId, "album" + i, price, stockQuantity,
+                            null, null, "artist" + (i % 1000), "etc", null, null});
+                    break;
+                default:
+                    items.add(new Object[]{"M", itemId, "movie" + i, price, stockQuantity,
+                            null, null, null, null, "director" + (i % 1000), "actor" + (i % 1000)});
+                    break;
+            }
+
+            // 상품마다 카테고리 1개, 30% 는 하나 더
+            if (settings.getCategories() > 0) {
+                int first = random.nextInt(settings.getCategories());
+                categoryItems.add(new Object[]{ids.categoryBase + first, itemId});
+
+                if (settings.getCategories() > 1 && random.nextDouble() < 0.3) {
+                    int second = (first + 1 + random.nextInt(settings.getCategories() - 1)) % settings.getCategories();
+                    categoryItems.add(new Object[]{ids.categoryBase + second, itemId});
+                }
+            }
+        }
+
+        jdbcTemplate.batchUpdate("insert into item (dtype, item_id, name, price, stock_quantity,"
+                + " author, isbn, artist, etc, director, actor) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", items);
+
+        if (!categoryItems.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into category_item (category_id, item_id) values (?, ?)", categoryItems);
+        }
+    }
+
+    private void insertOrders(IdLayout ids, int[] itemPrices, ZipfDistribution popularity, ZipfDistribution lines,
+                              LocalDateTime now, DataGeneratorProperties settings, int batch, long from, long to) {
+
+        SplittableRandom random = random(settings, ORDER_STREAM, batch);
+        int size = (int) (to - from);
+        long orderSeconds = settings.getOrderDays() * 24L * 60 * 60;
+
+        List<Object[]> deliveries = new ArrayList<>(size);
+        List<Object[]> orders = new ArrayList<>(size);
+        List<Object[]> orderItems = new ArrayList<>(size * settings.getMaxOrderLines());
+        int[] orderedItems = new int[settings.getMaxOrderLines()];
+
+        for (long i = from; i < to; i++) {
+            long orderId = ids.orderBase + i;
+            long deliveryId = ids.deliveryBase + i;
+            long member = random.nextInt(settings.getMembers());
+
+            boolean canceled = random.nextDouble() < settings.getCancelRatio();
+            boolean delivered = !canceled && random.nextDouble() < settings.getDeliveredRatio();
+            LocalDateTime orderDate = now.minusSeconds(orderSeconds == 0 ? 0 : random.nextLong(orderSeconds));
+
+            deliveries.add(new Object[]{deliveryId, cityOf(member), streetOf(member), zipcodeOf(member),
+                    (delivered ? DeliveryStatus.COMP : DeliveryStatus.READY).name()});
+
+            int lineCount = settings.getMinOrderLines() + lines.sample(random);
+            int totalPrice = 0;
+
+            for (int line = 0; line < lineCount; line++) {
+                int item = distinctItem(popularity, random, orderedItems, line, settings.getItems());
+                int count = 1 + random.nextInt(3);
+                orderedItems[line] = item;
+                totalPrice += itemPrices[item] * count;
+
+                orderItems.add(new Object[]{ids.orderItemBase + i * settings.getMaxOrderLines() + line,
+                        ids.itemBase + item, orderId, itemPrices[item], count});
+            }
+
+            orders.add(new Object[]{orderId, ids.memberBase + member, deliveryId, Timestamp.valueOf(orderDate),
+                    (canceled ? OrderStatus.CANCLE : OrderStatus.ORDER).name(), totalPrice});
+        }
+
+        jdbcTemplate.batchUpdate(
+                "insert into delivery (delivery_id, city, street, zipcode, status) values (?, ?, ?, ?, ?)", deliveries);
+        jdbcTemplate.batchUpdate(
+                "insert into orders (order_id, member_id, delivery_id, order_date, status, total_price)"
+                        + " values (?, ?, ?, ?, ?, ?)", orders);
+        jdbcTemplate.batchUpdate("insert into order_item (order_item_id, item_id, order_id, order_price, count)"
+                + " values (?, ?, ?, ?, ?)", orderItems);
+    }
+
+    /**
+     * 한 주문 안에서는 같은 상품이 중복되지 않도록 다시 뽑는다. (상품이 주문 상품 수보다 적으면 중복 허용)
+     * 인기 상품에 몰려서 10번 다시 뽑아도 겹치면, 마지막으로 뽑은 상품 다음부터 차례로 찾아서 아직 주문하지 않은 상품을 고른다.
+     */
+    static int distinctItem(ZipfDistribution popularity, SplittableRandom random,
+                            int[] orderedItems, int count, int itemCount) {
+
+        int item = popularity.sample(random);
+
+        if (count >= itemCount) {
+            return item;
+        }
+
+        for (int attempt = 0; attempt < 10 && contains(orderedItems, count, item); attempt++) {
+            item = popularity.sample(random);
+        }
+
+        while (contains(orderedItems, count, item)) {
+            item = (item + 1) % itemCount;
+        }
+
+        return item;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int[] itemPrices(DataGeneratorProperties settings) {
+
+        SplittableRandom random = random(settings, ITEM_STREAM, -1);
+        int[] prices = new int[settings.getItems()];
+
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = 1000 * (1 + random.nextInt(100));
+        }
+
+        return prices;
+    }
+
+    /**
+     * 구간을 batchSize 단위로 나눠서 스레드 풀에서 실행하고, 모두 끝날 때까지 기다린다.
+     */
+    private void runBatches(ExecutorService executor, String name, long total, DataGeneratorProperties settings,
+                            BatchTask task) {
+
+        long started = System.nanoTime();
+        int batchSize = Math.max(1, settings.getBatchSize());
+        List<Future<?>> futures = new ArrayList<>();
+
+        int batch = 0;
+
+        for (long from = 0; from < total; from += batchSize, batch++) {
+            int batchNumber = batch;
+            long start = from;
+            long end = Math.min(from + batchSize, total);
+
+            futures.add(executor.submit(() -> task.run(batchNumber, start, end)));
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("데이터 생성이 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException(name + " 데이터 생성에 실패했습니다.", e.getCause());
+        }
+
+        log.info("{} {}건 생성 ({}ms)", name, total, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * 기존 데이터의 가장 큰 식별자 다음 값
+     * 엔티티마다 식별자 구간을 따로 계산하지 않도록 테이블 전체에서 가장 큰 값을 찾는다.
+     */
+    private long nextId() {
+
+        String[][] tables = {{"member", "member_id"}, {"item", "item_id"}, {"category", "category_id"},
+                {"delivery", "delivery_id"}, {"orders", "order_id"}, {"order_item", "order_item_id"}};
+
+        long max = 0;
+
+        for (String[] table : tables) {
+            Long tableMax = jdbcTemplate.queryForObject(
+                    "select max(" + table[1] + ") from " + table[0], Long.class);
+
+            if (tableMax != null) {
+                max = Math.max(max, tableMax);
+            }
+        }
+
+        return max + 1;
+    }
+
+    /**
+     * pooled 방식은 시퀀스 값을 할당 구간의 끝으로 보고 (값 - allocationSize + 1) 부터 사용하므로
+     * 할당 크기만큼 더 뒤에서 시작해야 생성한 식별자와 겹치지 않는다.
+     */
+    private void restartSequences(long next) {
+        for (String sequence : SEQUENCES) {
+            jdbcTemplate.execute("alter sequence " + sequence + " restart with " + (next + MAX_ALLOCATION_SIZE));
+        }
+    }
+
+    private static SplittableRandom random(DataGeneratorProperties settings, long stream, long batch) {
+        return new SplittableRandom(settings.getSeed() * 31 + stream * 1_000_003 + batch);
+    }
+
+    private static String cityOf(long member) {
+        return CITIES[(int) (member % CITIES.length)];
+    }
+
+    private static String streetOf(long member) {
+        return "거리" + (member % 1000);
+    }
+
+    private static String zipcodeOf(long member) {
+        return String.valueOf(10000 + member % 90000);
+    }
+
+    @FunctionalInterface
+    private interface BatchTask {
+        void run(int batch, long from, long to);
+    }
+
+    /**
+     * 엔티티별 식별자 구간
+     * 주문 상품은 주문마다 maxOrderLines 개의 자리를 잡아둔다. (주문 번호만으로 식별자를 계산하기 위해)
+     */
+    private static class IdLayout {
+
+        final long memberBase;
+        final long itemBase;
+        final long categoryBase;
+        final long deliveryBase;
+        final long orderBase;
+        final long orderItemBase;
+        final long end;
+
+        IdLayout(long base, DataGeneratorProperties settings) {
+            memberBase = base;
+            itemBase = memberBase + settings.getMembers();
+            categoryBase = itemBase + settings.getItems();
+            deliveryBase = categoryBase + settings.getCategories();
+            orderBase = deliveryBase + settings.getOrders();
+            orderItemBase = orderBase + settings.getOrders();
+            end = orderItemBase + (long) settings.getOrders() * settings.getMaxOrderLines();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package jpabook.jpashop.generator;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * 0 ~ n-1 순위를 Zipf 분포로 뽑는다. (순위 k 의 확률은 1 / (k+1)^exponent 에 비례)
+ *
+ * 누적 분포를 한 번 계산해두고, 뽑을 때는 이진 탐색만 한다.
+ */
+class ZipfDistribution {
+
+    private final double[] cumulative;
+
+    ZipfDistribution(int n, double exponent) {
+
+        cumulative = new double[n];
+        double sum = 0;
+
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    int sample(SplittableRandom random) {
+
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+
+        if (index < 0) {
+            index = -index - 1;
+        }
+
+        return Math.min(index, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,54 @@
+package jpabook.jpashop.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP 요청마다 JDBC 커넥션을 잡고 있던 시간을 기록하는 필터
+ *
+ * - jpashop.connection.hold{uri} : 요청당 커넥션을 잡고 있던 시간
+ * - jpashop.connection.hold.ratio{uri} : 요청 처리 시간 중 커넥션을 잡고 있던 비율 (0 ~ 1)
+ *
+ * 비율이 낮을수록 같은 커넥션 풀로 더 많은 요청을 동시에 처리할 수 있다. (OSIV 를 끄면 화면 렌더링 시간이 빠진다.)
+ */
+@RequiredArgsConstructor
+public class ConnectionHoldTimeFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        ConnectionHoldTimer.start();
+        long start = System.nanoTime();
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            long held = ConnectionHoldTimer.stop();
+            String uri = uriOf(request);
+
+            meterRegistry.timer("jpashop.connection.hold", "uri", uri).record(held, TimeUnit.NANOSECONDS);
+            meterRegistry.summary("jpashop.connection.hold.ratio", "uri", uri).record(elapsed == 0 ? 0 : (double) held / elapsed);
+        }
+    }
+
+    /**
+     * 메트릭 태그 수가 늘어나지 않도록 실제 URI 대신 매핑된 URI 패턴을 사용한다.
+     */
+    private static String uriOf(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+}
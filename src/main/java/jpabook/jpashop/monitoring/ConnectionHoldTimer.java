@@ -0,0 +1,54 @@
+package jpabook.jpashop.monitoring;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * JDBC 커넥션을 잡고 있던 시간 측정
+ *
+ * 하이버네이트 세션 이벤트(hibernate.session.events.auto)로 세션마다 하나씩 만들어지고,
+ * 커넥션을 얻은 시점부터 돌려준 시점까지의 시간을 현재 스레드의 구간(start ~ stop)에 더한다.
+ * OSIV 가 켜져 있으면 세션은 화면 렌더링이 끝날 때 닫히므로 그동안 커넥션을 잡고 있는 시간도 포함된다.
+ */
+public class ConnectionHoldTimer extends BaseSessionEventListener {
+
+    private static final ThreadLocal<long[]> WINDOW = new ThreadLocal<>();
+
+    private long acquiredAt;
+
+    /**
+     * 현재 스레드의 측정 구간 시작
+     */
+    public static void start() {
+        WINDOW.set(new long[1]);
+    }
+
+    /**
+     * 현재 스레드의 측정 구간 종료
+     *
+     * @return 구간 안에서 커넥션을 잡고 있던 시간 합계 (나노초)
+     */
+    public static long stop() {
+
+        long[] window = WINDOW.get();
+        WINDOW.remove();
+
+        return window == null ? 0 : window[0];
+    }
+
+    @Override
+    public void jdbcConnectionAcquisitionEnd() {
+        acquiredAt = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcConnectionReleaseEnd() {
+
+        long[] window = WINDOW.get();
+
+        if (window != null && acquiredAt != 0) {
+            window[0] += System.nanoTime() - acquiredAt;
+        }
+
+        acquiredAt = 0;
+    }
+}
@@ -0,0 +1,71 @@
+package jpabook.jpashop.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * HTTP 요청마다 실행한 SQL 을 세고 N+1 을 탐지하는 필터
+ *
+ * - jpashop.sql.statements{uri} : 요청당 SQL 수
+ * - jpashop.sql.repeated{uri, association} : 같은 모양의 SQL 이 repeatThreshold 번 이상 반복된 요청 수 (N+1 의심)
+ *
+ * N+1 이 의심되면 요청 URI 와 반복 조회한 연관관계(테이블.조건 컬럼), SQL 을 경고 로그로 남긴다.
+ * 요청 통계는 request attribute 로도 남겨서 테스트에서 확인할 수 있다.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class SqlStatementCountFilter extends OncePerRequestFilter {
+
+    public static final String STATS_ATTRIBUTE = SqlStatementCountFilter.class.getName() + ".STATS";
+
+    private final MeterRegistry meterRegistry;
+    private final int repeatThreshold;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        SqlStatementCounter.start();
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlStatementStats stats = SqlStatementCounter.stop();
+            request.setAttribute(STATS_ATTRIBUTE, stats);
+            report(request, stats);
+        }
+    }
+
+    private void report(HttpServletRequest request, SqlStatementStats stats) {
+
+        String uri = uriOf(request);
+
+        meterRegistry.summary("jpashop.sql.statements", "uri", uri).record(stats.getCount());
+
+        for (SqlStatementStats.RepeatedStatement repeated : stats.repeated(repeatThreshold)) {
+            meterRegistry.counter("jpashop.sql.repeated", "uri", uri, "association", repeated.getAssociation())
+                    .increment();
+
+            log.warn("N+1 의심 : {} {} - {} 조회가 {}번 반복되었습니다. (요청 전체 SQL {}번) sql={}",
+                    request.getMethod(), uri, repeated.getAssociation(), repeated.getCount(), stats.getCount(),
+                    repeated.getShape());
+        }
+    }
+
+    /**
+     * 메트릭 태그 수가 늘어나지 않도록 실제 URI 대신 매핑된 URI 패턴을 사용한다. (예: /orders/{orderId}/cancel)
+     */
+    private static String uriOf(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+}
@@ -0,0 +1,64 @@
+package jpabook.jpashop.monitoring;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * 하이버네이트가 실행하는 SQL 을 현재 스레드의 통계에 기록하는 StatementInspector
+ *
+ * start() ~ stop() 사이에 현재 스레드에서 준비한 SQL 만 센다. (요청 단위는 SqlStatementCountFilter)
+ * SQL 문자열은 그대로 돌려주므로 실행에는 영향을 주지 않고,
+ * 통계를 시작하지 않은 스레드에서는 ThreadLocal 조회 한 번만 하므로 운영 환경에서도 켜둘 수 있다.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<SqlStatementStats> CURRENT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+
+        SqlStatementStats stats = CURRENT.get();
+
+        if (stats != null) {
+            stats.record(sql);
+        }
+
+        return sql;
+    }
+
+    /**
+     * 현재 스레드에서 SQL 세기 시작
+     * 이미 세고 있으면 안쪽 구간으로 시작하고, stop() 할 때 바깥 구간에 합친다.
+     *
+     * @return
+     */
+    public static SqlStatementStats start() {
+        SqlStatementStats stats = new SqlStatementStats(CURRENT.get());
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /**
+     * 현재 구간의 SQL 세기를 끝낸다.
+     *
+     * @return 현재 구간의 통계
+     */
+    public static SqlStatementStats stop() {
+
+        SqlStatementStats stats = CURRENT.get();
+
+        if (stats == null) {
+            return new SqlStatementStats(null);
+        }
+
+        SqlStatementStats parent = stats.getParent();
+
+        if (parent != null) {
+            parent.merge(stats);
+            CURRENT.set(parent);
+        } else {
+            CURRENT.remove();
+        }
+
+        return stats;
+    }
+}
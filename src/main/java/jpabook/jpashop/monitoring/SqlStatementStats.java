@@ -0,0 +1,127 @@
+package jpabook.jpashop.monitoring;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 한 구간(예: HTTP 요청 하나)에서 실행한 SQL 통계
+ *
+ * 하이버네이트는 값을 모두 ? 로 바인딩하므로 바인딩 값만 다른 SQL 은 문자열이 같다.
+ * 실행 중에는 SQL 문자열별 횟수만 세고, IN 절 파라미터 수를 맞추는 등의 정규화는 끝난 뒤 repeated() 에서만 한다.
+ */
+public class SqlStatementStats {
+
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern FROM_TABLE = Pattern.compile("(?i)\\bfrom\\s+(\\w+)");
+    private static final Pattern WHERE_COLUMN = Pattern.compile("(?i)\\bwhere\\s+\\(?\\s*\\w+\\.(\\w+)");
+
+    private final SqlStatementStats parent;
+    private final Map<String, Integer> countBySql = new HashMap<>();
+    private int count;
+
+    SqlStatementStats(SqlStatementStats parent) {
+        this.parent = parent;
+    }
+
+    SqlStatementStats getParent() {
+        return parent;
+    }
+
+    void record(String sql) {
+        count++;
+        countBySql.merge(sql, 1, Integer::sum);
+    }
+
+    void merge(SqlStatementStats child) {
+        count += child.count;
+        child.countBySql.forEach((sql, c) -> countBySql.merge(sql, c, Integer::sum));
+    }
+
+    /**
+     * 실행한 SQL 수
+     * @return
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * 실행한 SQL 문자열 목록 (같은 SQL 은 한 번만)
+     * @return
+     */
+    public Set<String> getStatements() {
+        return Collections.unmodifiableSet(countBySql.keySet());
+    }
+
+    /**
+     * 바인딩 값만 다르고 모양이 같은 SQL 이 threshold 번 이상 반복된 목록 (N+1 의심)
+     *
+     * @param threshold
+     * @return
+     */
+    public List<RepeatedStatement> repeated(int threshold) {
+
+        Map<String, Integer> countByShape = new HashMap<>();
+        countBySql.forEach((sql, c) -> countByShape.merge(shapeOf(sql), c, Integer::sum));
+
+        List<RepeatedStatement> result = new ArrayList<>();
+
+        countByShape.forEach((shape, c) -> {
+            if (c >= threshold) {
+                result.add(new RepeatedStatement(shape, c));
+            }
+        });
+
+        result.sort((a, b) -> Integer.compare(b.getCount(), a.getCount()));
+
+        return result;
+    }
+
+    private static String shapeOf(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        return IN_LIST.matcher(shape).replaceAll("in (?)");
+    }
+
+    /**
+     * 반복 실행된 SQL
+     */
+    public static class RepeatedStatement {
+
+        private final String shape;
+        private final int count;
+
+        RepeatedStatement(String shape, int count) {
+            this.shape = shape;
+            this.count = count;
+        }
+
+        public String getShape() {
+            return shape;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * 반복 조회한 연관관계 추정 (테이블.조건 컬럼, 예: order_item.order_id)
+         * @return
+         */
+        public String getAssociation() {
+
+            Matcher table = FROM_TABLE.matcher(shape);
+            Matcher column = WHERE_COLUMN.matcher(shape);
+
+            String tableName = table.find() ? table.group(1) : "unknown";
+
+            return column.find() ? tableName + "." + column.group(1) : tableName;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package jpabook.jpashop.outbox;
+
+import jpabook.jpashop.domain.OutboxEvent;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 이벤트를 파일에 한 줄씩(NDJSON) 덧붙인다.
+ * 묶음마다 파일을 한 번 열고 닫는다.
+ */
+public class FileOutboxSink implements OutboxSink {
+
+    private final Path file;
+
+    public FileOutboxSink(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public synchronized void send(List<OutboxEvent> events) throws IOException {
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+
+            for (OutboxEvent event : events) {
+                writer.write("{\"eventId\":" + event.getId() + ",\"event\":" + event.getPayload() + "}");
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package jpabook.jpashop.outbox;
+
+import jpabook.jpashop.domain.OutboxEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 받은 이벤트를 메모리에 보관한다. (테스트용)
+ */
+public class InMemoryOutboxSink implements OutboxSink {
+
+    private final List<OutboxEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public void send(List<OutboxEvent> events) {
+        this.events.addAll(events);
+    }
+
+    /**
+     * @return 지금까지 받은 이벤트 (받은 순서)
+     */
+    public List<OutboxEvent> getEvents() {
+        synchronized (events) {
+            return new ArrayList<>(events);
+        }
+    }
+}
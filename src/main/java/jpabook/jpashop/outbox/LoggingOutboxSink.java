@@ -0,0 +1,20 @@
+package jpabook.jpashop.outbox;
+
+import jpabook.jpashop.domain.OutboxEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * 이벤트를 로그로 남긴다. (받을 곳을 설정하지 않은 경우)
+ */
+@Slf4j
+public class LoggingOutboxSink implements OutboxSink {
+
+    @Override
+    public void send(List<OutboxEvent> events) {
+        for (OutboxEvent event : events) {
+            log.info("outbox event id={} {}", event.getId(), event.getPayload());
+        }
+    }
+}
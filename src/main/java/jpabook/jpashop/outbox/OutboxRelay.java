@@ -0,0 +1,126 @@
+package jpabook.jpashop.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jpabook.jpashop.domain.OutboxEvent;
+import jpabook.jpashop.repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 아웃박스 이벤트 전송
+ *
+ * 주기적으로(poll-interval) 전송하지 않은 이벤트를 batchSize 개씩 읽어서 OutboxSink 로 보내고 전송 완료로 표시한다.
+ * 전송하는 동안에는 트랜잭션(커넥션)을 잡지 않는다.
+ * 전송 후 표시하기 전에 실패하면 다음에 같은 이벤트를 다시 보낸다. (최소 한 번 전송)
+ *
+ * 메트릭
+ * - jpashop.outbox.delivered : 전송한 이벤트 수 (처리량)
+ * - jpashop.outbox.delivery.lag : 이벤트 저장부터 전송 완료까지 걸린 시간
+ * - jpashop.outbox.pending.age : 전송하지 않은 가장 오래된 이벤트가 기다린 시간 (초)
+ */
+@Slf4j
+public class OutboxRelay {
+
+    private static final long PURGE_INTERVAL_MILLIS = 60 * 60 * 1000;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxSink sink;
+    private final TransactionTemplate transaction;
+    private final int batchSize;
+    private final Duration retention;
+
+    private final Counter delivered;
+    private final Timer deliveryLag;
+
+    private volatile LocalDateTime oldestPendingCreatedAt;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, OutboxSink sink, TransactionTemplate transaction,
+                       int batchSize, Duration retention, MeterRegistry meterRegistry) {
+
+        this.outboxEventRepository = outboxEventRepository;
+        this.sink = sink;
+        this.transaction = transaction;
+        this.batchSize = batchSize;
+        this.retention = retention;
+
+        this.delivered = Counter.builder("jpashop.outbox.delivered")
+                .description("전송한 아웃박스 이벤트 수")
+                .register(meterRegistry);
+        this.deliveryLag = Timer.builder("jpashop.outbox.delivery.lag")
+                .description("아웃박스 이벤트 저장부터 전송 완료까지 걸린 시간")
+                .register(meterRegistry);
+        Gauge.builder("jpashop.outbox.pending.age", this, OutboxRelay::pendingAgeSeconds)
+                .description("전송하지 않은 가장 오래된 아웃박스 이벤트가 기다린 시간")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 전송하지 않은 이벤트를 모두 전송
+     *
+     * @return 전송한 이벤트 수
+     */
+    @Scheduled(fixedDelayString = "#{@outboxProperties.pollInterval.toMillis()}")
+    public synchronized int relay() {
+
+        int total = 0;
+
+        try {
+            while (true) {
+                List<OutboxEvent> events = transaction.execute(status -> outboxEventRepository.findUndelivered(batchSize));
+
+                if (events.isEmpty()) {
+                    break;
+                }
+
+                sink.send(events);
+
+                LocalDateTime deliveredAt = LocalDateTime.now();
+                List<Long> ids = events.stream().map(OutboxEvent::getId).collect(Collectors.toList());
+                transaction.executeWithoutResult(status -> outboxEventRepository.markDelivered(ids, deliveredAt));
+
+                delivered.increment(events.size());
+                events.forEach(event -> deliveryLag.record(Duration.between(event.getCreatedAt(), deliveredAt)));
+                total += events.size();
+
+                if (events.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("아웃박스 이벤트 전송 실패, 다음 주기에 다시 전송합니다.", e);
+        }
+
+        oldestPendingCreatedAt = transaction.execute(status -> outboxEventRepository.findOldestUndeliveredCreatedAt());
+
+        return total;
+    }
+
+    /**
+     * 보관 기간이 지난 전송 완료 이벤트 삭제
+     */
+    @Scheduled(fixedDelay = PURGE_INTERVAL_MILLIS, initialDelay = PURGE_INTERVAL_MILLIS)
+    public void purge() {
+
+        Integer deleted = transaction.execute(status ->
+                outboxEventRepository.deleteDeliveredBefore(LocalDateTime.now().minus(retention)));
+
+        log.info("전송 완료한 아웃박스 이벤트 삭제 deleted={}", deleted);
+    }
+
+    private double pendingAgeSeconds() {
+
+        LocalDateTime oldest = oldestPendingCreatedAt;
+
+        return oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).toMillis() / 1000.0;
+    }
+}
@@ -0,0 +1,20 @@
+package jpabook.jpashop.outbox;
+
+import jpabook.jpashop.domain.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * 아웃박스 이벤트를 받을 곳 (메시지 브로커, 파일 등)
+ */
+public interface OutboxSink {
+
+    /**
+     * 이벤트를 묶어서 전송한다.
+     * 예외를 던지면 묶음 전체를 전송하지 않은 것으로 보고 다음에 다시 보낸다. (최소 한 번 전송, 받는 쪽은 이벤트 식별자로 중복 제거)
+     *
+     * @param events 오래된 순
+     * @throws Exception
+     */
+    void send(List<OutboxEvent> events) throws Exception;
+}
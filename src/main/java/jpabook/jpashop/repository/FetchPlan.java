@@ -0,0 +1,240 @@
+package jpabook.jpashop.repository;
+
+import javax.persistence.AttributeNode;
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.Subgraph;
+import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * 조회할 때 함께 가져올 연관관계 (엔티티 그래프)
+ *
+ * 호출하는 쪽(컨트롤러, 서비스)이 필요한 모양을 선언하고, 리포지토리는 어떤 쿼리에든 fetch graph 힌트로 적용한다.
+ * 모양마다 fetch join 쿼리를 따로 만들지 않아도 되고, 필요 없는 연관관계는 조회하지 않는다.
+ *
+ * - named : 엔티티에 선언한 @NamedEntityGraph (FetchPlans 에 자주 쓰는 모양을 모아둔다.)
+ * - of : 경로로 만드는 동적 그래프 (예: "member", "orderItems.item")
+ *
+ * 페이징 쿼리(firstResult, maxResults 지정)에는 ToOne 관계만 적용한다.
+ * 컬렉션을 조인하면 row 수가 늘어나서 하이버네이트가 전체를 읽고 메모리에서 페이징하기 때문이다.
+ * 빠진 컬렉션은 지연 로딩 시 hibernate.default_batch_fetch_size 만큼 IN 쿼리로 한꺼번에 조회한다.
+ *
+ * 컬렉션은 그래프 하나에 1개만 넣는다.
+ * : 컬렉션 둘 이상을 함께 조인하면 row 가 곱으로 늘어나고, 데이터가 부정합하게 조회될 수 있다.
+ * : (List 컬렉션 둘이면 하이버네이트가 MultipleBagFetchException 으로 거부한다.)
+ * : 나머지 컬렉션은 지연 로딩 + 배치 조회로 가져온다.
+ *
+ * @param <T> 루트 엔티티 타입
+ */
+public final class FetchPlan<T> {
+
+    private static final String FETCH_GRAPH = "javax.persistence.fetchgraph";
+
+    private final Class<T> rootType;
+    private final String graphName;
+    private final List<String> paths;
+
+    private FetchPlan(Class<T> rootType, String graphName, List<String> paths) {
+        this.rootType = rootType;
+        this.graphName = graphName;
+        this.paths = paths;
+    }
+
+    /**
+     * 엔티티에 선언한 @NamedEntityGraph 사용
+     *
+     * @param rootType
+     * @param graphName
+     * @return
+     */
+    public static <T> FetchPlan<T> named(Class<T> rootType, String graphName) {
+        return new FetchPlan<>(rootType, graphName, Collections.emptyList());
+    }
+
+    /**
+     * 경로로 동적 그래프 생성
+     * 경로가 없으면 연관관계를 함께 가져오지 않는다. (엔티티 매핑의 기본 fetch 전략)
+     *
+     * @param rootType
+     * @param paths 점(.)으로 구분한 연관관계 경로 (예: "orderItems.item")
+     * @return
+     */
+    public static <T> FetchPlan<T> of(Class<T> rootType, String... paths) {
+        return new FetchPlan<>(rootType, null, List.of(paths));
+    }
+
+    /**
+     * 쿼리에 그래프를 적용해서 결과를 조회한다.
+     *
+     * 컬렉션을 조인하면 같은 루트 엔티티가 row 수만큼 중복되므로 한 번씩만 남긴다. (JPQL 의 distinct 와 같은 역할)
+     *
+     * @param em
+     * @param query
+     * @return
+     */
+    public List<T> getResultList(EntityManager em, TypedQuery<T> query) {
+
+        EntityGraph<T> graph = isPaged(query) ? toOneGraph(em) : graph(em);
+
+        if (graph == null) {
+            return query.getResultList();
+        }
+
+        List<T> result = query.setHint(FETCH_GRAPH, graph).getResultList();
+
+        if (!fetchesCollection(em, graph)) {
+            return result;
+        }
+
+        return new ArrayList<>(new LinkedHashSet<>(result));
+    }
+
+    @Override
+    public String toString() {
+        return rootType.getSimpleName() + (graphName != null ? "[" + graphName + "]" : paths);
+    }
+
+    private static boolean isPaged(TypedQuery<?> query) {
+        return query.getFirstResult() > 0 || query.getMaxResults() != Integer.MAX_VALUE;
+    }
+
+    /**
+     * 적용할 그래프 (경로가 없는 동적 그래프면 null)
+     */
+    @SuppressWarnings("unchecked")
+    private EntityGraph<T> graph(EntityManager em) {
+
+        if (graphName != null) {
+            return (EntityGraph<T>) em.getEntityGraph(graphName);
+        }
+
+        if (paths.isEmpty()) {
+            return null;
+        }
+
+        EntityGraph<T> graph = em.createEntityGraph(rootType);
+
+        for (String path : paths) {
+            addPath(graph, path.split("\\."));
+        }
+
+        return graph;
+    }
+
+    private static void addPath(EntityGraph<?> graph, String[] names) {
+
+        if (names.length == 1) {
+            graph.addAttributeNodes(names[0]);
+            return;
+        }
+
+        Subgraph<?> subgraph = graph.addSubgraph(names[0]);
+
+        for (String name : Arrays.asList(names).subList(1, names.length - 1)) {
+            subgraph = subgraph.addSubgraph(name);
+        }
+
+        subgraph.addAttributeNodes(names[names.length - 1]);
+    }
+
+    /**
+     * 그래프에서 컬렉션을 뺀 그래프 (페이징용)
+     */
+    private EntityGraph<T> toOneGraph(EntityManager em) {
+
+        EntityGraph<T> graph = graph(em);
+
+        if (graph == null || !fetchesCollection(em, graph)) {
+            return graph;
+        }
+
+        EntityGraph<T> toOne = em.createEntityGraph(rootType);
+        ManagedType<T> type = em.getMetamodel().managedType(rootType);
+
+        for (AttributeNode<?> node : graph.getAttributeNodes()) {
+            Attribute<?, ?> attribute = type.getAttribute(node.getAttributeName());
+
+            if (attribute.isCollection()) {
+                continue;
+            }
+
+            if (node.getSubgraphs().isEmpty()) {
+                toOne.addAttributeNodes(node.getAttributeName());
+            } else {
+                copyToOne(node, managedTypeOf(attribute), toOne.addSubgraph(node.getAttributeName()));
+            }
+        }
+
+        return toOne;
+    }
+
+    private static void copyToOne(AttributeNode<?> source, ManagedType<?> type, Subgraph<?> target) {
+
+        for (Subgraph<?> subgraph : source.getSubgraphs().values()) {
+            for (AttributeNode<?> node : subgraph.getAttributeNodes()) {
+                Attribute<?, ?> attribute = type.getAttribute(node.getAttributeName());
+
+                if (attribute.isCollection()) {
+                    continue;
+                }
+
+                if (node.getSubgraphs().isEmpty()) {
+                    target.addAttributeNodes(node.getAttributeName());
+                } else {
+                    copyToOne(node, managedTypeOf(attribute), target.addSubgraph(node.getAttributeName()));
+                }
+            }
+        }
+    }
+
+    private boolean fetchesCollection(EntityManager em, EntityGraph<T> graph) {
+
+        ManagedType<T> type = em.getMetamodel().managedType(rootType);
+
+        for (AttributeNode<?> node : graph.getAttributeNodes()) {
+            if (fetchesCollection(type, node)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean fetchesCollection(ManagedType<?> type, AttributeNode<?> node) {
+
+        Attribute<?, ?> attribute = type.getAttribute(node.getAttributeName());
+
+        if (attribute.isCollection()) {
+            return true;
+        }
+
+        for (Subgraph<?> subgraph : node.getSubgraphs().values()) {
+            for (AttributeNode<?> child : subgraph.getAttributeNodes()) {
+                if (fetchesCollection(managedTypeOf(attribute), child)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static ManagedType<?> managedTypeOf(Attribute<?, ?> attribute) {
+
+        Type<?> type = attribute.isCollection()
+                ? ((PluralAttribute<?, ?, ?>) attribute).getElementType()
+                : ((SingularAttribute<?, ?>) attribute).getType();
+
+        return (ManagedType<?>) type;
+    }
+}
@@ -0,0 +1,32 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.item.Item;
+
+/**
+ * 자주 쓰는 조회 모양 (@NamedEntityGraph)
+ */
+public final class FetchPlans {
+
+    /**
+     * 연관관계를 함께 가져오지 않음
+     */
+    public static final FetchPlan<Order> ORDER = FetchPlan.of(Order.class);
+    public static final FetchPlan<Member> MEMBER = FetchPlan.of(Member.class);
+    public static final FetchPlan<Item> ITEM = FetchPlan.of(Item.class);
+
+    /**
+     * 주문 + 회원 + 배송
+     */
+    public static final FetchPlan<Order> ORDER_MEMBER_DELIVERY = FetchPlan.named(Order.class, "Order.withMemberDelivery");
+
+    /**
+     * 주문 + 회원 + 배송 + 주문 상품 + 상품
+     * 페이징 쿼리에서는 주문 상품(컬렉션)을 빼고 배치 조회한다.
+     */
+    public static final FetchPlan<Order> ORDER_ITEMS = FetchPlan.named(Order.class, "Order.withItems");
+
+    private FetchPlans() {
+    }
+}
@@ -1,16 +1,28 @@
 package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.NativeQuery;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.persistence.Cache;
 import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 @Repository
 @RequiredArgsConstructor
 public class ItemRepository {
 
+    private static final String STOCK_QUERY_SPACE = "item_stock";
+    private static final Set<String> ITEM_TABLE = Collections.singleton("item");
+
     private final EntityManager em;
 
     public void save(Item item) {
@@ -27,6 +39,108 @@ public class ItemRepository {
     }
 
     public List<Item> findAll() {
-        return em.createQuery("SELECT i FROM Item i", Item.class).getResultList();
+        return findAll(FetchPlans.ITEM);
+    }
+
+    public List<Item> findAll(FetchPlan<Item> plan) {
+        return plan.getResultList(em, em.createQuery("SELECT i FROM Item i", Item.class));
+    }
+
+    /**
+     * 상품들을 쿼리 한 번으로 조회
+     *
+     * @param ids
+     * @return 식별자 오름차순
+     */
+    public List<Item> findAllById(Collection<Long> ids) {
+        return em.createQuery("SELECT i FROM Item i WHERE i.id IN :ids ORDER BY i.id", Item.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * 데이터베이스의 현재 재고 조회 (2차 캐시, 영속성 컨텍스트를 거치지 않는다.)
+     *
+     * @param id
+     * @return 상품이 없으면 null
+     */
+    public Integer findStockQuantity(Long id) {
+        return em.createQuery("SELECT i.stockQuantity FROM Item i WHERE i.id = :id", Integer.class)
+                .setParameter("id", id)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * 재고 차감
+     *
+     * 엔티티로 재고를 읽고 빼서 변경 감지로 저장하면, 동시에 같은 상품을 주문할 때 서로의 변경을 덮어써서 초과 판매가 생긴다.
+     * 재고가 충분할 때만 차감하는 UPDATE 한 번으로 처리하고, 변경된 row 가 없으면 재고 부족으로 판단한다.
+     * row 잠금은 UPDATE 하는 순간부터 트랜잭션 끝까지만 잡으므로 조회 후 잠그는 방식보다 잠금 시간이 짧다.
+     *
+     * 영속성 컨텍스트의 Item 엔티티 재고(stockQuantity)는 바뀌지 않으므로 필요하면 다시 조회해야 한다.
+     * 같은 트랜잭션에서 저장하고 아직 flush 하지 않은 상품은 데이터베이스에 없으므로 먼저 flush 한다.
+     *
+     * @param itemId
+     * @param quantity
+     * @throws NotEnoughStockException 재고가 부족한 경우
+     */
+    public void removeStock(Long itemId, int quantity) {
+
+        int updated = updateStock(
+                "UPDATE item SET stock_quantity = stock_quantity - :quantity"
+                        + " WHERE item_id = :itemId AND stock_quantity >= :quantity", itemId, quantity);
+
+        if (updated == 0) {
+            throw new NotEnoughStockException("need more stock");
+        }
+    }
+
+    /**
+     * 재고 증가 (주문 취소)
+     *
+     * @param itemId
+     * @param quantity
+     */
+    public void addStock(Long itemId, int quantity) {
+        updateStock("UPDATE item SET stock_quantity = stock_quantity + :quantity WHERE item_id = :itemId",
+                itemId, quantity);
+    }
+
+    /**
+     * JPQL 벌크 연산은 Item 2차 캐시 영역 전체를 비우므로, 네이티브 쿼리에 별도의 쿼리 공간(STOCK_QUERY_SPACE)을 지정해서
+     * 다른 캐시 영역을 건드리지 않고, 변경한 상품만 2차 캐시에서 제거한다.
+     * 커밋 전에 다른 트랜잭션이 이전 재고로 캐시를 다시 채울 수 있으므로 커밋 후에도 한 번 더 제거한다.
+     *
+     * 쿼리 공간이 item 테이블과 다르므로 하이버네이트가 저장 대기 중인 상품을 자동으로 flush 하지 않는다.
+     * 대기 중인 item INSERT 가 있으면 직접 flush 해서, 방금 저장한 상품이 재고 부족으로 판단되지 않도록 한다.
+     */
+    private int updateStock(String sql, Long itemId, int quantity) {
+
+        if (em.unwrap(SessionImplementor.class).getActionQueue().areTablesToBeUpdated(ITEM_TABLE)) {
+            em.flush();
+        }
+
+        int updated = em.createNativeQuery(sql)
+                .setParameter("quantity", quantity)
+                .setParameter("itemId", itemId)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(STOCK_QUERY_SPACE)
+                .executeUpdate();
+
+        Cache cache = em.getEntityManagerFactory().getCache();
+        cache.evict(Item.class, itemId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.evict(Item.class, itemId);
+                }
+            });
+        }
+
+        return updated;
     }
 }
@@ -22,7 +22,11 @@ public class MemberRepository  {
     }
 
     public List<Member> findAll() {
-        return em.createQuery("SELECT m FROM Member m", Member.class).getResultList();
+        return findAll(FetchPlans.MEMBER);
+    }
+
+    public List<Member> findAll(FetchPlan<Member> plan) {
+        return plan.getResultList(em, em.createQuery("SELECT m FROM Member m", Member.class));
     }
 
     public List<Member> findByName(String name) {
@@ -0,0 +1,138 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.exception.InvalidRequestException;
+import lombok.Getter;
+
+import javax.persistence.Query;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 커서(keyset) 기반 페이징 조건
+ *
+ * offset 방식은 앞 페이지의 row 를 모두 읽고 버리므로 뒤 페이지로 갈수록 느려진다.
+ * 커서 방식은 마지막으로 조회한 정렬 키 다음부터 인덱스를 타고 바로 읽으므로 몇 번째 페이지든 비용이 같다.
+ *
+ * 정렬 기준
+ * - ID : order_id 오름차순
+ * - ORDER_DATE : orderDate, order_id 오름차순 (같은 시간의 주문은 order_id 로 구분)
+ *
+ * 클라이언트에는 encode() 한 불투명(opaque) 문자열만 전달하고, 다음 요청에서 그대로 돌려받는다.
+ */
+@Getter
+public class OrderCursor {
+
+    public enum Sort {
+        ID, ORDER_DATE
+    }
+
+    private static final String DELIMITER = "|";
+
+    private final Sort sort;
+    private final Long lastOrderId; // null 이면 첫 페이지
+    private final LocalDateTime lastOrderDate;
+
+    private OrderCursor(Sort sort, Long lastOrderId, LocalDateTime lastOrderDate) {
+        this.sort = sort;
+        this.lastOrderId = lastOrderId;
+        this.lastOrderDate = lastOrderDate;
+    }
+
+    /**
+     * 첫 페이지 커서
+     * @param sort
+     * @return
+     */
+    public static OrderCursor first(Sort sort) {
+        return new OrderCursor(sort, null, null);
+    }
+
+    /**
+     * 마지막으로 조회한 주문 다음부터 읽는 커서
+     * @param orderId
+     * @param orderDate
+     * @return
+     */
+    public OrderCursor next(Long orderId, LocalDateTime orderDate) {
+        return new OrderCursor(sort, orderId, sort == Sort.ORDER_DATE ? orderDate : null);
+    }
+
+    public boolean isFirst() {
+        return lastOrderId == null;
+    }
+
+    /**
+     * 클라이언트에 전달할 불투명 문자열로 변환
+     * @return
+     */
+    public String encode() {
+        String raw = sort.name() + DELIMITER + lastOrderId;
+
+        if (sort == Sort.ORDER_DATE) {
+            raw += DELIMITER + lastOrderDate;
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * encode() 로 만든 문자열을 다시 커서로 변환
+     * @param cursor
+     * @return
+     */
+    public static OrderCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] tokens = raw.split("\\" + DELIMITER);
+
+            Sort sort = Sort.valueOf(tokens[0]);
+            Long lastOrderId = Long.valueOf(tokens[1]);
+            LocalDateTime lastOrderDate = sort == Sort.ORDER_DATE ? LocalDateTime.parse(tokens[2]) : null;
+
+            return new OrderCursor(sort, lastOrderId, lastOrderDate);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new InvalidRequestException("잘못된 커서입니다.", e);
+        }
+    }
+
+    /**
+     * 커서 이후의 row 만 읽는 WHERE 조건
+     * 정렬 키에 인덱스가 있으면 앞 페이지의 row 를 읽지 않고 바로 탐색한다.
+     * @param alias 주문 엔티티 별칭
+     * @return
+     */
+    public String whereClause(String alias) {
+        if (isFirst()) {
+            return "";
+        }
+
+        if (sort == Sort.ORDER_DATE) {
+            return " WHERE (" + alias + ".orderDate > :cursorOrderDate"
+                    + " OR (" + alias + ".orderDate = :cursorOrderDate AND " + alias + ".id > :cursorOrderId))";
+        }
+
+        return " WHERE " + alias + ".id > :cursorOrderId";
+    }
+
+    public String orderByClause(String alias) {
+        if (sort == Sort.ORDER_DATE) {
+            return " ORDER BY " + alias + ".orderDate, " + alias + ".id";
+        }
+
+        return " ORDER BY " + alias + ".id";
+    }
+
+    public void bind(Query query) {
+        if (isFirst()) {
+            return;
+        }
+
+        query.setParameter("cursorOrderId", lastOrderId);
+
+        if (sort == Sort.ORDER_DATE) {
+            query.setParameter("cursorOrderDate", lastOrderDate);
+        }
+    }
+}
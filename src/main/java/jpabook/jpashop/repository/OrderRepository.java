@@ -3,6 +3,7 @@ package jpabook.jpashop.repository;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 
@@ -11,6 +12,7 @@ import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 @RequiredArgsConstructor
@@ -155,68 +157,104 @@ public class OrderRepository {
 //    }
 
     /**
-     * 엔티티를 페치 조인(fetch join)을 사용해서 쿼리 1번에 조회
+     * 전체 주문 조회
+     * 함께 가져올 연관관계는 호출하는 쪽이 fetch plan 으로 정한다.
      *
-     * @return
-     */
-    public List<Order> findAllWithMemberDelivery() {
-        return em.createQuery(
-                "SELECT o FROM Order o" +
-                    " JOIN FETCH o.member m" +
-                    " JOIN FETCH o.delivery d", Order.class
-        ).getResultList();
-    }
-
-    /**
-     * fetch join 으로 SQL 이 1번만 실행됨.
+     * 컬렉션(orderItems)을 포함한 plan 은 fetch join 으로 SQL 이 1번만 실행됨.
      *
-     * distinct 를 사용한 이유
+     * 중복 제거 (JPQL 의 distinct 와 같은 역할)
      * : 일대다 join 이 있으므로 데이터베이스 row 가 증가하며 그 결과 같은 order 엔티티의 조회 수도 증가하게 된다.
      * : JPA 의 distinct 는 SQL 에 distinct 를 추가하고, 더해서 같은 엔티티가 조회되면, 애플리케이션에서 중복을 걸러준다.
-     * : 이 예에서 order 가 컬렉션 fetch join 때문에 중복 조회 되는 것을 막아준다.
+     * : FetchPlan 이 같은 방식으로 중복된 order 를 한 번씩만 남긴다.
      *
      * JPA 에서의 distinct 와 DB 에서의 distinct 의 차이점
      * : DB 에서는 row 의 모든 값들이 동일해야만 중복이 제거되나, JPA 에서는 id(PK) 가 같은 경우 중복 제거를 해 준다.
      *
-     * 단점 : 페이징이 불가능
+     * 단점 : 페이징이 불가능 (페이징이 필요하면 아래 페이징 조회를 사용한다.)
+     *
+     * @param plan
+     * @return
+     */
+    public List<Order> findAll(FetchPlan<Order> plan) {
+        return plan.getResultList(em, em.createQuery("SELECT o FROM Order o", Order.class));
+    }
+
+    /**
+     * offset 페이징
+     *
+     * fetch plan 의 ToOne(OneToOne, ManyToOne) 관계만 조인한다.
+     * ToOne 관계는 row 수를 증가시키지 않으므로 페이징 쿼리에 영향을 주지 않는다.
+     * 컬렉션은 지연 로딩으로 조회하고, hibernate.default_batch_fetch_size 로 IN 쿼리 한 번에 가져온다.
      *
      * 컬렉션 fetch join
      * : 컬렉션 fetch join 을 사용하면 페이징이 불가능하므로 매우 위험한 방법이다.
-     * : hibernate 는 경고 로그를 남기면서 모든 데이터를 DB 에서 읽어오고, 메모리에서 페이징 해버린다.
-     * : 컬렉션 fetch join 은 1개만 사용할 수 있다.
-     * : 데이터가 부정합하게 조회될 수 있어 컬렉션 둘 이상에 fetch join 을 사용하면 안 된다.
+     * : hibernate 는 경고 로그(HHH000104)를 남기면서 모든 데이터를 DB 에서 읽어오고, 메모리에서 페이징 해버린다.
+     * : 그래서 plan 에 컬렉션이 있어도 페이징 쿼리에서는 빼고 조인한다.
      *
+     * @param plan
+     * @param offset
+     * @param limit
      * @return
      */
-    public List<Order> findAllWithItem() {
-        return em.createQuery(
-                "SELECT distinct o FROM Order o" +
-                    " JOIN FETCH o.member m" +
-                    " JOIN FETCH o.delivery d" +
-                    " JOIN FETCH o.orderItems oi" +
-                    " JOIN FETCH oi.item i", Order.class
-        ).getResultList();
+    public List<Order> findAll(FetchPlan<Order> plan, int offset, int limit) {
+        return plan.getResultList(em, em.createQuery("SELECT o FROM Order o", Order.class)
+                .setFirstResult(offset)
+                .setMaxResults(limit));
     }
 
     /**
-     * 먼저 ToOne(OneToOne, ManyToOne) 관계를 모두 fetch join
-     * ToOne 관계는 row 수를 증가시키지 않으므로 페이징 쿼리에 영향을 주지 않는다.
+     * 전체 주문을 forward-only 커서로 한 건씩 읽는다.
      *
-     * 컬렉션은 지연 로딩으로 조회
+     * 결과를 List 로 받지 않으므로 건수 제한(최대 1000건)이 없다.
+     * JDBC fetch size 만큼씩 DB 에서 가져오므로 드라이버가 전체 결과를 메모리에 올리지 않는다.
+     * (MySQL 은 fetch size 를 Integer.MIN_VALUE 로 지정해야 row 단위로 스트리밍한다.)
      *
-     * 지연 로딩 성능 최적화를 위해 hibernate.default_batch_fetch_size, @BatchSize 를 적용
+     * 읽은 엔티티는 영속성 컨텍스트에 계속 쌓이므로, 호출하는 쪽에서 주기적으로 clear() 해야 한다.
+     * 스트림은 사용 후 반드시 닫아야 한다.
      *
-     * @param offset
-     * @param limit
+     * @param fetchSize
      * @return
      */
-    public List<Order> findAllWithMemberDelivery(int offset, int limit) {
+    public Stream<Order> streamAllWithMemberDelivery(int fetchSize) {
         return em.createQuery(
                 "SELECT o FROM Order o" +
                         " JOIN FETCH o.member m" +
-                        " JOIN FETCH o.delivery d", Order.class)
-                .setFirstResult(offset)
-                .setMaxResults(limit)
-                .getResultList();
+                        " JOIN FETCH o.delivery d" +
+                        " ORDER BY o.id", Order.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream();
+    }
+
+    /**
+     * 영속성 컨텍스트 초기화
+     * 대량의 엔티티를 읽을 때 메모리가 계속 늘어나지 않도록 이미 처리한 엔티티를 분리한다.
+     */
+    public void clear() {
+        em.clear();
+    }
+
+    /**
+     * 커서(keyset) 기반 페이징
+     *
+     * offset 방식은 DB 가 offset 만큼의 row 를 읽고 버리므로 뒤 페이지로 갈수록 느려진다.
+     * 마지막으로 조회한 정렬 키 이후부터 인덱스로 바로 탐색하므로 몇 번째 페이지든 비용이 같다.
+     *
+     * offset 페이징과 같이 fetch plan 의 ToOne 관계만 조인하고, 컬렉션은 배치 조회한다. (V3.1 과 동일)
+     *
+     * @param cursor
+     * @param limit
+     * @param plan
+     * @return
+     */
+    public List<Order> findAll(OrderCursor cursor, int limit, FetchPlan<Order> plan) {
+        TypedQuery<Order> query = em.createQuery(
+                "SELECT o FROM Order o" +
+                        cursor.whereClause("o") +
+                        cursor.orderByClause("o"), Order.class)
+                .setMaxResults(limit);
+
+        cursor.bind(query);
+
+        return plan.getResultList(em, query);
     }
 }
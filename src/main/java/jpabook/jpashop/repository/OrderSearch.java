@@ -9,4 +9,15 @@ public class OrderSearch {
 
     private String memberName;
     private OrderStatus orderStatus;
+    private Integer minTotalPrice; // 주문 총액 하한 (포함)
+    private Integer maxTotalPrice; // 주문 총액 상한 (포함)
+    private Sort sort = Sort.NONE;
+
+    /**
+     * 검색 결과 정렬
+     * 주문 총액 정렬은 총액 인덱스(idx_orders_total_price)를 따라 읽으므로 최대 건수만큼만 읽고 멈춘다.
+     */
+    public enum Sort {
+        NONE, TOTAL_PRICE_ASC, TOTAL_PRICE_DESC
+    }
 }
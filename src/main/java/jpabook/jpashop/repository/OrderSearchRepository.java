@@ -0,0 +1,177 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Order;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 주문 검색 - 조건 조합별로 미리 준비한 쿼리 사용
+ *
+ * findAllByString() 은 호출할 때마다 JPQL 문자열을 새로 만들고,
+ * findAllByCriteria() 는 호출할 때마다 Criteria 트리 전체를 다시 만들고 JPQL 로 변환한다.
+ *
+ * OrderSearch 의 조건 조합은 (주문 상태, 회원 이름, 최소 총액, 최대 총액) 있음/없음과 정렬 방식의 조합 뿐이므로
+ * 애플리케이션 시작 시점에 조합마다 쿼리를 한 번 파싱해서 named query 로 등록해두고,
+ * 호출할 때는 등록된 쿼리에 파라미터만 바인딩한다.
+ */
+@Repository
+public class OrderSearchRepository {
+
+    private static final int MAX_RESULTS = 1000; // 최대 1000건
+
+    private static final int STATUS = 1;
+    private static final int MEMBER_NAME = 1 << 1;
+    private static final int MIN_TOTAL_PRICE = 1 << 2;
+    private static final int MAX_TOTAL_PRICE = 1 << 3;
+    private static final int CONDITIONS = 1 << 4;
+    private static final int COMBINATIONS = CONDITIONS * OrderSearch.Sort.values().length;
+
+    private final EntityManager em;
+    private final EntityManagerFactory emf;
+
+    public OrderSearchRepository(EntityManager em, EntityManagerFactory emf) {
+        this.em = em;
+        this.emf = emf;
+    }
+
+    /**
+     * 모든 조건 조합의 쿼리를 미리 준비
+     */
+    @PostConstruct
+    public void prepare() {
+        for (int combination = 0; combination < COMBINATIONS; combination++) {
+            prepare(combination);
+        }
+    }
+
+    public List<Order> findAll(OrderSearch orderSearch) {
+        return findAll(orderSearch, FetchPlans.ORDER);
+    }
+
+    /**
+     * 검색 결과에 fetch plan 적용
+     * 최대 건수(1000건)를 지정한 쿼리이므로 ToOne 관계만 조인하고, 컬렉션은 배치 조회한다.
+     *
+     * @param orderSearch
+     * @param plan
+     * @return
+     */
+    public List<Order> findAll(OrderSearch orderSearch, FetchPlan<Order> plan) {
+
+        int combination = combinationOf(orderSearch);
+        TypedQuery<Order> query = em.createNamedQuery(queryName(combination), Order.class);
+
+        if ((combination & STATUS) != 0) {
+            query.setParameter("status", orderSearch.getOrderStatus());
+        }
+
+        if ((combination & MEMBER_NAME) != 0) {
+            query.setParameter("name", orderSearch.getMemberName());
+        }
+
+        if ((combination & MIN_TOTAL_PRICE) != 0) {
+            query.setParameter("minTotalPrice", orderSearch.getMinTotalPrice());
+        }
+
+        if ((combination & MAX_TOTAL_PRICE) != 0) {
+            query.setParameter("maxTotalPrice", orderSearch.getMaxTotalPrice());
+        }
+
+        return plan.getResultList(em, query);
+    }
+
+    private static String queryName(int combination) {
+        return "Order.search." + combination;
+    }
+
+    private void prepare(int combination) {
+
+        // 쿼리 정의를 등록하는 용도로만 사용하는 엔티티 매니저
+        EntityManager registrar = emf.createEntityManager();
+
+        try {
+            TypedQuery<Order> query = registrar.createQuery(jpql(combination), Order.class)
+                    .setMaxResults(MAX_RESULTS);
+
+            emf.addNamedQuery(queryName(combination), query);
+        } finally {
+            registrar.close();
+        }
+    }
+
+    private static int combinationOf(OrderSearch orderSearch) {
+
+        int combination = 0;
+
+        // 주문 상태 검색
+        if (orderSearch.getOrderStatus() != null) {
+            combination |= STATUS;
+        }
+
+        // 회원 이름 검색
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            combination |= MEMBER_NAME;
+        }
+
+        // 주문 총액 범위 검색
+        if (orderSearch.getMinTotalPrice() != null) {
+            combination |= MIN_TOTAL_PRICE;
+        }
+
+        if (orderSearch.getMaxTotalPrice() != null) {
+            combination |= MAX_TOTAL_PRICE;
+        }
+
+        OrderSearch.Sort sort = orderSearch.getSort() == null ? OrderSearch.Sort.NONE : orderSearch.getSort();
+
+        return combination + CONDITIONS * sort.ordinal();
+    }
+
+    private static String jpql(int combination) {
+
+        List<String> conditions = new ArrayList<>();
+
+        if ((combination & STATUS) != 0) {
+            conditions.add("o.status = :status");
+        }
+
+        if ((combination & MEMBER_NAME) != 0) {
+            conditions.add("m.name LIKE :name");
+        }
+
+        if ((combination & MIN_TOTAL_PRICE) != 0) {
+            conditions.add("o.totalPrice >= :minTotalPrice");
+        }
+
+        if ((combination & MAX_TOTAL_PRICE) != 0) {
+            conditions.add("o.totalPrice <= :maxTotalPrice");
+        }
+
+        String jpql = "SELECT o FROM Order o JOIN o.member m";
+
+        if (!conditions.isEmpty()) {
+            jpql += " WHERE " + String.join(" AND ", conditions);
+        }
+
+        // 총액이 같으면 order_id 순 (인덱스 순서와 같게)
+        switch (OrderSearch.Sort.values()[combination / CONDITIONS]) {
+            case TOTAL_PRICE_ASC:
+                jpql += " ORDER BY o.totalPrice, o.id";
+                break;
+            case TOTAL_PRICE_DESC:
+                jpql += " ORDER BY o.totalPrice DESC, o.id DESC";
+                break;
+            default:
+                break;
+        }
+
+        return jpql;
+    }
+}
@@ -0,0 +1,65 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class OutboxEventRepository {
+
+    private final EntityManager em;
+
+    public void save(OutboxEvent event) {
+        em.persist(event);
+    }
+
+    /**
+     * 전송하지 않은 이벤트를 오래된 순으로 limit 개 조회
+     *
+     * @param limit
+     * @return
+     */
+    public List<OutboxEvent> findUndelivered(int limit) {
+        return em.createQuery("SELECT e FROM OutboxEvent e WHERE e.deliveredAt IS NULL ORDER BY e.id", OutboxEvent.class)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * @return 전송하지 않은 가장 오래된 이벤트의 생성 시각 (없으면 null)
+     */
+    public LocalDateTime findOldestUndeliveredCreatedAt() {
+        return em.createQuery("SELECT min(e.createdAt) FROM OutboxEvent e WHERE e.deliveredAt IS NULL", LocalDateTime.class)
+                .getSingleResult();
+    }
+
+    /**
+     * @param ids
+     * @param deliveredAt
+     * @return 전송 완료로 표시한 이벤트 수
+     */
+    public int markDelivered(Collection<Long> ids, LocalDateTime deliveredAt) {
+        return em.createQuery("UPDATE OutboxEvent e SET e.deliveredAt = :deliveredAt WHERE e.id IN :ids")
+                .setParameter("deliveredAt", deliveredAt)
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    /**
+     * 보관 기간이 지난 전송 완료 이벤트 삭제
+     *
+     * @param before
+     * @return 삭제한 이벤트 수
+     */
+    public int deleteDeliveredBefore(LocalDateTime before) {
+        return em.createQuery("DELETE FROM OutboxEvent e WHERE e.deliveredAt < :before")
+                .setParameter("before", before)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,56 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.StockReservation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class StockReservationRepository {
+
+    private final EntityManager em;
+
+    public void save(StockReservation reservation) {
+        em.persist(reservation);
+    }
+
+    /**
+     * afterId 이후의 예약을 오래된 것부터 limit 개 조회
+     *
+     * @param afterId 이전 묶음의 마지막 예약 식별자 (처음이면 0)
+     * @param limit
+     * @return
+     */
+    public List<StockReservation> findOldest(long afterId, int limit) {
+        return em.createQuery("SELECT r FROM StockReservation r WHERE r.id > :afterId ORDER BY r.id", StockReservation.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 아직 반영하지 않은 예약 수량 합계
+     *
+     * @param itemId
+     * @return
+     */
+    public long sumQuantity(Long itemId) {
+        return em.createQuery("SELECT coalesce(sum(r.quantity), 0) FROM StockReservation r WHERE r.itemId = :itemId", Long.class)
+                .setParameter("itemId", itemId)
+                .getSingleResult();
+    }
+
+    /**
+     * @param ids
+     * @return 삭제한 예약 수
+     */
+    public int deleteAll(Collection<Long> ids) {
+        return em.createQuery("DELETE FROM StockReservation r WHERE r.id IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,139 @@
+package jpabook.jpashop.repository.order.query;
+
+import java.util.Arrays;
+
+/**
+ * long 키 -> int 값 해시 맵 (open addressing, linear probing)
+ *
+ * HashMap<Long, ...> 과 달리 키를 박싱하지 않고 엔트리 객체도 만들지 않는다.
+ * 키와 값을 각각 하나의 배열에 저장하므로 할당량이 작고 예측 가능하다.
+ * DTO 를 식별자 기준으로 묶는 용도로만 사용하므로 삭제는 지원하지 않는다.
+ */
+public final class LongIntHashMap {
+
+    private static final long EMPTY = 0L; // 빈 슬롯 표시 (키 0 은 별도로 저장)
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    public LongIntHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    /**
+     * @param key
+     * @param defaultValue 키가 없을 때 반환할 값
+     * @return
+     */
+    public int get(long key, int defaultValue) {
+
+        if (key == EMPTY) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long existing = keys[slot];
+
+            if (existing == key) {
+                return values[slot];
+            }
+
+            if (existing == EMPTY) {
+                return defaultValue;
+            }
+        }
+    }
+
+    /**
+     * 키가 없을 때만 값을 저장
+     * @param key
+     * @param value
+     * @return 이미 저장된 값, 새로 저장했으면 value
+     */
+    public int putIfAbsent(long key, int value) {
+
+        if (key == EMPTY) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                zeroValue = value;
+            }
+            return zeroValue;
+        }
+
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long existing = keys[slot];
+
+            if (existing == key) {
+                return values[slot];
+            }
+
+            if (existing == EMPTY) {
+                keys[slot] = key;
+                values[slot] = value;
+
+                if (++size >= resizeThreshold) {
+                    rehash();
+                }
+
+                return value;
+            }
+        }
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void rehash() {
+
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+
+        allocate(oldKeys.length << 1);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+
+            if (key != EMPTY) {
+                int slot = slot(key);
+
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+
+        while (capacity * LOAD_FACTOR <= expectedSize) {
+            capacity <<= 1;
+        }
+
+        return capacity;
+    }
+}
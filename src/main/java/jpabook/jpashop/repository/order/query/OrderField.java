@@ -0,0 +1,84 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.exception.InvalidRequestException;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 주문 조회 API 에서 선택할 수 있는 필드 (fields= 파라미터)
+ *
+ * 이름은 응답 JSON 의 필드명과 같다.
+ * 필드마다 SELECT 절에 들어갈 JPQL 식과, 그 식에 필요한 조인을 가진다.
+ */
+public enum OrderField {
+
+    ORDER_ID("orderId", "o.id", Join.NONE),
+    NAME("name", "m.name", Join.MEMBER),
+    ORDER_DATE("orderDate", "o.orderDate", Join.NONE),
+    ORDER_STATUS("orderStatus", "o.status", Join.NONE),
+    ADDRESS("address", "d.address", Join.DELIVERY),
+    ORDER_ITEMS("orderItems", null, Join.NONE); // 별도 쿼리로 조회
+
+    enum Join {
+        NONE, MEMBER, DELIVERY
+    }
+
+    private final String fieldName;
+    private final String expression;
+    private final Join join;
+
+    OrderField(String fieldName, String expression, Join join) {
+        this.fieldName = fieldName;
+        this.expression = expression;
+        this.join = join;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    String getExpression() {
+        return expression;
+    }
+
+    Join getJoin() {
+        return join;
+    }
+
+    /**
+     * "orderId,orderStatus,orderDate" 형식의 문자열을 필드 목록으로 변환
+     * orderId 는 응답의 식별자이자 주문 상품을 묶는 기준이므로 항상 포함한다.
+     *
+     * @param fields
+     * @param allowed 해당 API 에서 선택할 수 있는 필드
+     * @return
+     */
+    public static Set<OrderField> parse(String fields, Set<OrderField> allowed) {
+
+        Set<OrderField> result = EnumSet.of(ORDER_ID);
+
+        for (String token : fields.split(",")) {
+            String name = token.trim();
+
+            if (name.isEmpty()) {
+                continue;
+            }
+
+            result.add(of(name, allowed));
+        }
+
+        return result;
+    }
+
+    private static OrderField of(String fieldName, Set<OrderField> allowed) {
+
+        for (OrderField field : allowed) {
+            if (field.fieldName.equals(fieldName)) {
+                return field;
+            }
+        }
+
+        throw new InvalidRequestException("지원하지 않는 필드입니다. fields=" + fieldName);
+    }
+}
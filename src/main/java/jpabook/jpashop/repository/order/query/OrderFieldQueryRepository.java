@@ -0,0 +1,97 @@
+package jpabook.jpashop.repository.order.query;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 요청한 필드만 조회 (sparse fieldsets)
+ *
+ * 대부분의 API 클라이언트는 orderId, orderStatus, orderDate 만 필요하지만
+ * DTO 조회는 항상 회원 이름, 주소 전체, (V5 는) 주문 상품까지 조회한다.
+ *
+ * 요청한 필드로 SELECT 절을 만들고, 그 필드에 필요한 조인만 추가한다.
+ * 주문 상품을 요청하지 않으면 주문 상품 쿼리는 아예 실행하지 않는다.
+ * DB 전송량과 JSON 직렬화 비용이 함께 줄어든다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderFieldQueryRepository {
+
+    private final EntityManager em;
+    private final OrderItemChunkLoader orderItemChunkLoader;
+
+    /**
+     * Query: 루트 1번, (주문 상품을 요청한 경우) 컬렉션 1번
+     *
+     * @param fields
+     * @return 필드명 -> 값 (필드 선언 순서)
+     */
+    public List<Map<String, Object>> findOrders(Set<OrderField> fields) {
+
+        List<Tuple> tuples = em.createQuery(jpql(fields), Tuple.class).getResultList();
+
+        List<Map<String, Object>> result = new ArrayList<>(tuples.size());
+        List<Long> orderIds = new ArrayList<>(tuples.size());
+
+        for (Tuple tuple : tuples) {
+            Map<String, Object> order = new LinkedHashMap<>();
+
+            for (OrderField field : fields) {
+                if (field.getExpression() != null) {
+                    order.put(field.getFieldName(), tuple.get(field.getFieldName()));
+                }
+            }
+
+            result.add(order);
+            orderIds.add((Long) order.get(OrderField.ORDER_ID.getFieldName()));
+        }
+
+        if (fields.contains(OrderField.ORDER_ITEMS)) {
+            List<OrderItemQueryDto> orderItems = orderItemChunkLoader.findOrderItems(orderIds);
+            List<List<OrderItemQueryDto>> grouped = OrderQueryAssembler.groupByOrderId(orderIds, orderItems);
+
+            for (int i = 0; i < result.size(); i++) {
+                result.get(i).put(OrderField.ORDER_ITEMS.getFieldName(), grouped.get(i));
+            }
+        }
+
+        return result;
+    }
+
+    private static String jpql(Set<OrderField> fields) {
+
+        List<String> selections = new ArrayList<>();
+        boolean joinMember = false;
+        boolean joinDelivery = false;
+
+        for (OrderField field : fields) {
+            if (field.getExpression() == null) {
+                continue;
+            }
+
+            selections.add(field.getExpression() + " AS " + field.getFieldName());
+            joinMember |= field.getJoin() == OrderField.Join.MEMBER;
+            joinDelivery |= field.getJoin() == OrderField.Join.DELIVERY;
+        }
+
+        String jpql = "SELECT " + String.join(", ", selections) + " FROM Order o";
+
+        if (joinMember) {
+            jpql += " JOIN o.member m";
+        }
+
+        if (joinDelivery) {
+            jpql += " JOIN o.delivery d";
+        }
+
+        return jpql;
+    }
+}
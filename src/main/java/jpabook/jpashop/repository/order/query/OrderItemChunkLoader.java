@@ -0,0 +1,170 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.config.OrderQueryProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 주문 식별자 목록으로 주문 상품을 조회
+ *
+ * 주문 식별자를 IN 절 하나에 모두 바인딩하면 데이터베이스의 IN 절 파라미터 수 제한에 걸리고,
+ * 거대한 쿼리 하나를 스레드 하나가 실행하게 된다.
+ *
+ * 식별자 목록을 itemChunkSize 단위로 나누고, chunk 가 여러 개면 제한된 크기의 스레드 풀에서 동시에 조회한 뒤
+ * 원래 순서대로 합친다.
+ * 각 chunk 는 별도의 읽기 전용 트랜잭션(별도의 커넥션)에서 조회하므로, 호출한 쪽 트랜잭션에서 아직 커밋하지 않은 변경은 보이지 않는다.
+ *
+ * 호출한 스레드는 커넥션(OSIV, 트랜잭션)을 잡은 채로 chunk 조회를 기다린다.
+ * 기다리는 호출이 커넥션 풀을 모두 차지하면 조회 스레드가 커넥션을 얻지 못하므로,
+ * 동시에 나누어 조회하는 호출 수를 itemFetchMaxCallers (풀 크기 - 조회 스레드 수 이하)로 제한하고
+ * 나머지 호출은 자기 커넥션으로 순차 조회한다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+class OrderItemChunkLoader {
+
+    private final EntityManager em;
+    private final PlatformTransactionManager transactionManager;
+    private final OrderQueryProperties properties;
+    private final DataSource dataSource;
+
+    private TransactionTemplate readOnlyTransaction;
+    private ThreadPoolExecutor executor;
+    private Semaphore callers;
+
+    @PostConstruct
+    public void init() {
+
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+
+        int threads = Math.max(1, properties.getItemFetchThreads());
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        // 큐가 가득 차면 호출한 스레드가 직접 조회한다. (무한정 쌓이지 않도록 제한)
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 16),
+                r -> {
+                    Thread thread = new Thread(r, "order-item-fetch-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+
+        callers = new Semaphore(Math.max(0, maxCallers(threads)));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    public List<OrderItemQueryDto> findOrderItems(List<Long> orderIds) {
+
+        List<List<Long>> chunks = partition(orderIds, Math.max(1, properties.getItemChunkSize()));
+
+        // chunk 가 하나 뿐이거나, 동시 조회를 사용하지 않거나, 이미 최대 호출 수만큼 나누어 조회 중이면 현재 스레드에서 순서대로 조회
+        if (chunks.size() <= 1 || properties.getItemFetchThreads() <= 1 || !callers.tryAcquire()) {
+            List<OrderItemQueryDto> result = new ArrayList<>();
+            chunks.forEach(chunk -> result.addAll(findOrderItemChunk(chunk)));
+            return result;
+        }
+
+        try {
+            return findOrderItemsConcurrently(chunks);
+        } finally {
+            callers.release();
+        }
+    }
+
+    private List<OrderItemQueryDto> findOrderItemsConcurrently(List<List<Long>> chunks) {
+
+        List<CompletableFuture<List<OrderItemQueryDto>>> futures = new ArrayList<>(chunks.size());
+
+        for (List<Long> chunk : chunks) {
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> readOnlyTransaction.execute(status -> findOrderItemChunk(chunk)), executor));
+        }
+
+        // chunk 순서대로 합친다.
+        List<OrderItemQueryDto> result = new ArrayList<>();
+        futures.forEach(future -> result.addAll(future.join()));
+
+        return result;
+    }
+
+    private List<OrderItemQueryDto> findOrderItemChunk(List<Long> orderIds) {
+        return em.createQuery(
+            "SELECT new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)"
+                    + " FROM OrderItem oi"
+                    + " JOIN oi.item i"
+                    + " WHERE oi.order.id IN :orderIds", OrderItemQueryDto.class)
+            .setParameter("orderIds", orderIds)
+            .getResultList();
+    }
+
+    /**
+     * 동시에 나누어 조회할 수 있는 호출 수
+     * HikariCP 풀이면 호출과 조회 스레드가 풀 전체를 차지하지 않도록 풀 크기 - 조회 스레드 수 이하로 줄인다.
+     */
+    private int maxCallers(int threads) {
+
+        int maxCallers = properties.getItemFetchMaxCallers();
+
+        HikariDataSource pool = hikariPool();
+
+        if (pool != null) {
+            int poolSize = pool.getMaximumPoolSize();
+
+            if (maxCallers + threads > poolSize) {
+                maxCallers = poolSize - threads;
+                log.warn("item-fetch-max-callers 를 커넥션 풀 크기({}) - item-fetch-threads({}) = {} 로 줄입니다.",
+                        poolSize, threads, Math.max(0, maxCallers));
+            }
+        }
+
+        return maxCallers;
+    }
+
+    /**
+     * p6spy 등으로 감싼 DataSource 안의 HikariCP 풀 (없으면 null)
+     */
+    private HikariDataSource hikariPool() {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    private static List<List<Long>> partition(List<Long> ids, int size) {
+
+        List<List<Long>> chunks = new ArrayList<>((ids.size() + size - 1) / size);
+
+        for (int from = 0; from < ids.size(); from += size) {
+            chunks.add(ids.subList(from, Math.min(from + size, ids.size())));
+        }
+
+        return chunks;
+    }
+}
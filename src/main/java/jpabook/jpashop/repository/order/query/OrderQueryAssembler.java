@@ -0,0 +1,140 @@
+package jpabook.jpashop.repository.order.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 주문 DTO 조립 (V5, V6)
+ *
+ * Collectors.groupingBy 는 주문 식별자를 모두 박싱하고, 주문마다 HashMap 엔트리와 ArrayList 를 만든다.
+ * 주문 식별자 -> 주문 위치를 LongIntHashMap 에 저장하고,
+ * 주문 상품을 주문 순서대로 배열 하나에 정렬(counting sort)한 뒤, 주문마다 그 배열의 구간을 목록으로 사용한다.
+ * 주문 상품 수와 상관없이 배열 몇 개만 할당하므로 할당량이 작고 예측 가능하다.
+ */
+public final class OrderQueryAssembler {
+
+    private static final int NOT_FOUND = -1;
+
+    private OrderQueryAssembler() {
+    }
+
+    /**
+     * 주문 상품을 주문별로 묶어서 각 주문의 orderItems 에 넣는다. (V5)
+     * 조회한 주문 순서는 그대로 유지한다.
+     *
+     * @param orders
+     * @param orderItems
+     */
+    public static void attachOrderItems(List<OrderQueryDto> orders, List<OrderItemQueryDto> orderItems) {
+
+        List<Long> orderIds = new ArrayList<>(orders.size());
+        orders.forEach(o -> orderIds.add(o.getOrderId()));
+
+        List<List<OrderItemQueryDto>> grouped = groupByOrderId(orderIds, orderItems);
+
+        for (int i = 0; i < orders.size(); i++) {
+            orders.get(i).setOrderItems(grouped.get(i));
+        }
+    }
+
+    /**
+     * 주문 상품을 주문 식별자 목록 순서대로 묶는다.
+     *
+     * @param orderIds
+     * @param orderItems
+     * @return i 번째 목록은 orderIds 의 i 번째 주문의 주문 상품
+     */
+    public static List<List<OrderItemQueryDto>> groupByOrderId(List<Long> orderIds, List<OrderItemQueryDto> orderItems) {
+
+        int orderCount = orderIds.size();
+        LongIntHashMap indexByOrderId = new LongIntHashMap(orderCount);
+
+        for (int i = 0; i < orderCount; i++) {
+            indexByOrderId.putIfAbsent(orderIds.get(i), i);
+        }
+
+        int[] groups = new int[orderItems.size()];
+
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = indexByOrderId.get(orderItems.get(i).getOrderId(), NOT_FOUND);
+        }
+
+        return group(orderCount, groups, orderItems);
+    }
+
+    /**
+     * 플랫 row 를 주문 단위로 묶는다. (V6)
+     * 주문은 처음 나타난 순서대로 반환한다.
+     *
+     * @param flats
+     * @return
+     */
+    public static List<OrderQueryDto> fromFlats(List<OrderFlatDto> flats) {
+
+        LongIntHashMap indexByOrderId = new LongIntHashMap(flats.size());
+        List<OrderQueryDto> orders = new ArrayList<>();
+        List<OrderItemQueryDto> orderItems = new ArrayList<>(flats.size());
+        int[] groups = new int[flats.size()];
+
+        for (int i = 0; i < groups.length; i++) {
+            OrderFlatDto flat = flats.get(i);
+            int index = indexByOrderId.putIfAbsent(flat.getOrderId(), orders.size());
+
+            if (index == orders.size()) {
+                orders.add(new OrderQueryDto(flat.getOrderId(), flat.getName(), flat.getOrderDate(),
+                        flat.getOrderStatus(), flat.getAddress()));
+            }
+
+            groups[i] = index;
+            orderItems.add(new OrderItemQueryDto(flat.getOrderId(),
+                    flat.getItemName(), flat.getOrderPrice(), flat.getCount()));
+        }
+
+        List<List<OrderItemQueryDto>> grouped = group(orders.size(), groups, orderItems);
+
+        for (int i = 0; i < orders.size(); i++) {
+            orders.get(i).setOrderItems(grouped.get(i));
+        }
+
+        return orders;
+    }
+
+    /**
+     * groups[i] 번째 그룹에 items[i] 를 넣는다. (NOT_FOUND 는 버린다.)
+     * 그룹 순서대로 배열 하나에 정렬하고, 각 그룹은 그 배열의 구간을 목록으로 반환한다.
+     */
+    private static List<List<OrderItemQueryDto>> group(int groupCount, int[] groups, List<OrderItemQueryDto> items) {
+
+        // 그룹별 시작 위치
+        int[] offsets = new int[groupCount + 1];
+
+        for (int group : groups) {
+            if (group != NOT_FOUND) {
+                offsets[group + 1]++;
+            }
+        }
+
+        for (int i = 0; i < groupCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        OrderItemQueryDto[] sorted = new OrderItemQueryDto[offsets[groupCount]];
+        int[] positions = Arrays.copyOf(offsets, groupCount);
+
+        for (int i = 0; i < groups.length; i++) {
+            if (groups[i] != NOT_FOUND) {
+                sorted[positions[groups[i]]++] = items.get(i);
+            }
+        }
+
+        List<OrderItemQueryDto> backing = Arrays.asList(sorted);
+        List<List<OrderItemQueryDto>> grouped = new ArrayList<>(groupCount);
+
+        for (int i = 0; i < groupCount; i++) {
+            grouped.add(backing.subList(offsets[i], offsets[i + 1]));
+        }
+
+        return grouped;
+    }
+}
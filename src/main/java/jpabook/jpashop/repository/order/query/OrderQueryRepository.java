@@ -1,26 +1,41 @@
 package jpabook.jpashop.repository.order.query;
 
+import jpabook.jpashop.config.CacheConfig;
+import jpabook.jpashop.repository.OrderCursor;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 @RequiredArgsConstructor
 public class OrderQueryRepository {
 
+    private static final int STREAM_FETCH_SIZE = 1000;
+
     private final EntityManager em;
+    private final OrderItemChunkLoader orderItemChunkLoader;
 
     /**
      * 컬렉션은 별도로 조회
      * Query: 루트 1번, 컬렉션 N 번
      * 단건 조회에서 많이 사용하는 방식
      *
+     * 결과는 캐시하고, 주문이 바뀌면 무효화한다. (CacheConfig)
+     *
      * @return
      */
+    @Cacheable(cacheNames = CacheConfig.ORDER_QUERIES, key = "#root.methodName")
     public List<OrderQueryDto> findOrderQueryDtos() {
         // 루트 조회 (toOne 코드를 모두 한번에 조회)
         List<OrderQueryDto> result = findOrders();
@@ -31,7 +46,7 @@ public class OrderQueryRepository {
             o.setOrderItems(orderItems);
         });
 
-        return result;
+        return unmodifiable(result);
     }
 
     /**
@@ -39,23 +54,60 @@ public class OrderQueryRepository {
      * Query: 루트 1번, 컬렉션 1번
      * 데이터를 한꺼번에 처리할 때 많이 사용하는 방식
      *
+     * 결과는 캐시하고, 주문이 바뀌면 무효화한다. (CacheConfig)
+     *
      * @return
      */
+    @Cacheable(cacheNames = CacheConfig.ORDER_QUERIES, key = "#root.methodName")
     public List<OrderQueryDto> findAllByDto_optimization() {
         // 루트 조회 (toOne 코드를 모두 한번에 조회)
         List<OrderQueryDto> result = findOrders();
 
-        // orderItem 컬렉션을 MAP 한방에 조회
-        Map<Long, List<OrderItemQueryDto>> orderItemMap = findOrderItemMap(toOrderIds(result));
+        // orderItem 컬렉션을 한방에 조회
+        List<OrderItemQueryDto> orderItems = findOrderItems(toOrderIds(result));
+
+        // 주문별로 묶어서 컬렉션 추가 (추가 쿼리 실행X)
+        OrderQueryAssembler.attachOrderItems(result, orderItems);
+
+        return unmodifiable(result);
+    }
+
+    /**
+     * 최적화 + 커서(keyset) 기반 페이징
+     * Query: 루트 1번, 컬렉션 1번
+     * 루트를 커서 이후부터 limit 만큼만 조회하므로 몇 번째 페이지든 비용이 같다.
+     *
+     * @param cursor
+     * @param limit
+     * @return
+     */
+    public List<OrderQueryDto> findAllByDto_optimization(OrderCursor cursor, int limit) {
+        // 루트 조회 (커서 이후 limit 건)
+        List<OrderQueryDto> result = findOrders(cursor, limit);
+
+        // orderItem 컬렉션을 한방에 조회
+        List<OrderItemQueryDto> orderItems = findOrderItems(toOrderIds(result));
 
-        // 루프를 돌면서 컬렉션 추가 (추가 쿼리 실행X)
-        result.forEach(o -> o.setOrderItems(orderItemMap.get(o.getOrderId())));
+        // 주문별로 묶어서 컬렉션 추가 (추가 쿼리 실행X)
+        OrderQueryAssembler.attachOrderItems(result, orderItems);
 
         return result;
     }
 
-    public List<OrderFlatDto> findAllByDto_flat() {
-        return em.createQuery(
+    /**
+     * 플랫 데이터 조회
+     * Query: 1번
+     *
+     * 주문 식별자 기준으로 묶어서 OrderQueryDto 로 변환한다. (주문은 처음 나타난 순서대로)
+     * 묶은 결과를 캐시하므로 캐시 적중 시에는 다시 묶지 않는다.
+     *
+     * 결과는 캐시하고, 주문이 바뀌면 무효화한다. (CacheConfig)
+     *
+     * @return
+     */
+    @Cacheable(cacheNames = CacheConfig.ORDER_QUERIES, key = "#root.methodName")
+    public List<OrderQueryDto> findAllByDto_flat() {
+        List<OrderFlatDto> flats = em.createQuery(
             "SELECT NEW jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status,"
                     + " d.address, i.name, oi.orderPrice, oi.count)"
                     + " FROM Order o"
@@ -64,22 +116,83 @@ public class OrderQueryRepository {
                     + " JOIN o.orderItems oi"
                     + " JOIN oi.item i", OrderFlatDto.class)
                 .getResultList();
+
+        return unmodifiable(OrderQueryAssembler.fromFlats(flats));
     }
 
-    private Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
-        List<OrderItemQueryDto> orderItems = em.createQuery(
-            "SELECT new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)"
-                    + " FROM OrderItem oi"
+    /**
+     * 플랫 데이터 스트리밍 조회
+     * Query: 1번
+     *
+     * findAllByDto_flat() 은 모든 row 를 List 로 받은 뒤 애플리케이션에서 다시 묶으므로
+     * 전체 데이터가 메모리에 여러 벌 올라가고, 주문 순서도 보장되지 않는다.
+     *
+     * order_id 순으로 정렬해서 forward-only 커서로 한 row 씩 읽고,
+     * 같은 주문의 연속된 row 를 하나의 OrderQueryDto 로 접어서 주문 단위로 consumer 에 넘긴다.
+     * 메모리에는 현재 주문 하나만 올라가므로 주문 수와 상관없이 힙 사용량이 일정하다.
+     *
+     * 커서를 읽는 동안 커넥션이 필요하므로 호출하는 쪽 트랜잭션 안에서 실행해야 한다. (OrderQueryService.streamOrders)
+     *
+     * @param consumer
+     */
+    public void findAllByDto_flat(Consumer<OrderQueryDto> consumer) {
+        try (Stream<OrderFlatDto> flats = em.createQuery(
+            "SELECT NEW jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status,"
+                    + " d.address, i.name, oi.orderPrice, oi.count)"
+                    + " FROM Order o"
+                    + " JOIN o.member m"
+                    + " JOIN o.delivery d"
+                    + " JOIN o.orderItems oi"
                     + " JOIN oi.item i"
-                    + " WHERE oi.order.id IN :orderIds", OrderItemQueryDto.class)
-            .setParameter("orderIds", orderIds)
-            .getResultList();
+                    + " ORDER BY o.id", OrderFlatDto.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()) {
+
+            OrderQueryDto current = null;
+            Iterator<OrderFlatDto> iterator = flats.iterator();
+
+            while (iterator.hasNext()) {
+                OrderFlatDto flat = iterator.next();
+
+                // 주문이 바뀌면 앞 주문은 완성된 것이므로 내보낸다.
+                if (current == null || !current.getOrderId().equals(flat.getOrderId())) {
+                    if (current != null) {
+                        consumer.accept(current);
+                    }
+
+                    current = new OrderQueryDto(flat.getOrderId(), flat.getName(), flat.getOrderDate(),
+                            flat.getOrderStatus(), flat.getAddress(), new ArrayList<>());
+                }
+
+                current.getOrderItems().add(new OrderItemQueryDto(flat.getOrderId(),
+                        flat.getItemName(), flat.getOrderPrice(), flat.getCount()));
+            }
+
+            if (current != null) {
+                consumer.accept(current);
+            }
+        }
+    }
 
-        Map<Long, List<OrderItemQueryDto>> orderItemMap = orderItems.stream()
-                .collect(Collectors.groupingBy(orderItemQueryDto -> orderItemQueryDto.getOrderId()));
-        return orderItemMap;
+    /**
+     * 주문 식별자 목록으로 주문 상품을 조회
+     * 식별자가 많으면 chunk 단위 IN 쿼리로 나누어 동시에 조회한다. (OrderItemChunkLoader)
+     *
+     * @param orderIds
+     * @return
+     */
+    private List<OrderItemQueryDto> findOrderItems(List<Long> orderIds) {
+        return orderItemChunkLoader.findOrderItems(orderIds);
     }
     
+    /**
+     * 캐시에 저장하는 결과는 요청마다 같은 인스턴스를 돌려주므로, 목록을 수정할 수 없게 감싼다.
+     */
+    private static List<OrderQueryDto> unmodifiable(List<OrderQueryDto> orders) {
+        orders.forEach(o -> o.setOrderItems(Collections.unmodifiableList(o.getOrderItems())));
+        return Collections.unmodifiableList(orders);
+    }
+
     private List<Long> toOrderIds(List<OrderQueryDto> result) {
         List<Long> orderIds = result.stream()
                 .map(o -> o.getOrderId())
@@ -116,4 +229,26 @@ public class OrderQueryRepository {
                         + " join o.delivery d", OrderQueryDto.class)
                 .getResultList();
     }
+
+    /**
+     * 커서 이후의 주문을 limit 건만 조회
+     *
+     * @param cursor
+     * @param limit
+     * @return
+     */
+    private List<OrderQueryDto> findOrders(OrderCursor cursor, int limit) {
+        TypedQuery<OrderQueryDto> query = em.createQuery(
+                "SELECT new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address)"
+                        + " FROM Order o"
+                        + " join o.member m"
+                        + " join o.delivery d"
+                        + cursor.whereClause("o")
+                        + cursor.orderByClause("o"), OrderQueryDto.class)
+                .setMaxResults(limit);
+
+        cursor.bind(query);
+
+        return query.getResultList();
+    }
 }
@@ -1,9 +1,11 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.config.CacheConfig;
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.repository.ItemRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -28,6 +30,7 @@ public class ItemService {
      * @param item
      */
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.ORDER_QUERIES, allEntries = true) // merge 로 주문 DTO 의 상품명이 바뀔 수 있다.
     public void saveItem(Item item) {
         itemRepository.save(item);
     }
@@ -44,6 +47,7 @@ public class ItemService {
      * @param stockQuantity
      */
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.ORDER_QUERIES, allEntries = true) // 주문 DTO 에 상품명이 포함된다.
     public void updateItem(Long itemId, String name, int price, int stockQuantity) {
 
         Item findItem = itemRepository.findOne(itemId);
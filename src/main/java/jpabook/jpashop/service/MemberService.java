@@ -1,8 +1,10 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.config.CacheConfig;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.repository.MemberRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -71,6 +73,7 @@ public class MemberService {
      * @param name
      */
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.ORDER_QUERIES, allEntries = true) // 주문 DTO 에 회원명이 포함된다.
     public void update(Long id, String name) {
 
         Member member = memberRepository.findOne(id);
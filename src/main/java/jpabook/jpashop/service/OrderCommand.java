@@ -0,0 +1,22 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * 주문 요청 (묶음 주문에서 주문 하나)
+ */
+@Getter
+public class OrderCommand {
+
+    private final Long memberId;
+    private final SortedMap<Long, Integer> countByItemId; // 상품 식별자 순서
+
+    public OrderCommand(Long memberId, Map<Long, Integer> countByItemId) {
+        this.memberId = memberId;
+        this.countByItemId = new TreeMap<>(countByItemId);
+    }
+}
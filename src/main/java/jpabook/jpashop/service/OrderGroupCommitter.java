@@ -0,0 +1,176 @@
+package jpabook.jpashop.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 그룹 커밋
+ *
+ * 주문마다 트랜잭션을 커밋하면 부하가 높을 때 커밋(로그 기록, fsync) 비용이 대부분을 차지한다.
+ * 동시에 들어온 주문을 큐에 모아서 maxBatchSize 개가 되거나 maxWait 이 지나면 한 트랜잭션으로 저장한다. (OrderService.orderBatch)
+ * 주문한 스레드는 CompletableFuture 로 자기 주문의 식별자 또는 예외(재고 부족 등)를 받는다.
+ *
+ * 묶음 트랜잭션 자체가 실패하면(데이터베이스 오류 등) 한 주문 때문에 나머지가 실패하지 않도록 주문마다 따로 다시 처리한다.
+ */
+@Slf4j
+public class OrderGroupCommitter implements AutoCloseable {
+
+    private static final long POLL_TIMEOUT_MILLIS = 100; // 종료 여부를 확인하는 주기
+
+    private final OrderService orderService;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<PendingOrder> queue;
+    private final DistributionSummary batchSizes;
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    public OrderGroupCommitter(OrderService orderService, int maxBatchSize, Duration maxWait, int queueCapacity,
+                               MeterRegistry meterRegistry) {
+
+        this.orderService = orderService;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSizes = DistributionSummary.builder("jpashop.order.group-commit.batch-size")
+                .description("한 트랜잭션으로 저장한 주문 수")
+                .register(meterRegistry);
+
+        this.worker = new Thread(this::run, "order-group-commit");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 주문 요청
+     * 큐가 가득 찼거나 종료 중이면 요청한 스레드에서 바로 주문한다.
+     *
+     * @param memberId
+     * @param countByItemId 상품 식별자별 주문 수량
+     * @return 주문 식별자 (실패하면 그 주문의 예외로 완료)
+     */
+    public CompletableFuture<Long> submit(Long memberId, Map<Long, Integer> countByItemId) {
+
+        PendingOrder pending = new PendingOrder(new OrderCommand(memberId, countByItemId));
+
+        if (!running || !queue.offer(pending)) {
+            orderOne(pending);
+        } else if (!running && queue.remove(pending)) {
+            // 큐에 넣는 사이에 종료되었으면 아무도 꺼내지 않을 수 있으므로 직접 처리한다.
+            // (꺼내지 못했으면 작업 스레드나 close() 가 이미 가져가서 처리한다.)
+            orderOne(pending);
+        }
+
+        return pending.result;
+    }
+
+    /**
+     * 대기 중인 주문을 모두 처리한 후 종료
+     * 작업 스레드가 끝난 뒤에 큐에 들어온 주문(종료와 동시에 요청된 주문)은 close() 를 호출한 스레드에서 처리한다.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        worker.join();
+
+        PendingOrder pending;
+
+        while ((pending = queue.poll()) != null) {
+            orderOne(pending);
+        }
+    }
+
+    private void run() {
+
+        List<PendingOrder> batch = new ArrayList<>(maxBatchSize);
+
+        try {
+            while (running || !queue.isEmpty()) {
+                PendingOrder first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+
+                // 첫 주문부터 maxWait 동안 더 모은다. (이미 큐에 쌓인 주문은 기다리지 않고 바로 가져온다.)
+                long deadline = System.nanoTime() + maxWaitNanos;
+
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingOrder next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+
+                    if (next == null) {
+                        break;
+                    }
+
+                    batch.add(next);
+                }
+
+                commit(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            batch.forEach(pending -> pending.result.completeExceptionally(e));
+        }
+    }
+
+    private void commit(List<PendingOrder> batch) {
+
+        batchSizes.record(batch.size());
+
+        List<OrderCommand> commands = new ArrayList<>(batch.size());
+        batch.forEach(pending -> commands.add(pending.command));
+
+        List<OrderOutcome> outcomes;
+
+        try {
+            outcomes = orderService.orderBatch(commands);
+        } catch (RuntimeException e) {
+            log.warn("묶음 주문 저장 실패, 주문마다 다시 처리합니다. size={}", batch.size(), e);
+            batch.forEach(this::orderOne);
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            OrderOutcome outcome = outcomes.get(i);
+
+            if (outcome.isSuccess()) {
+                batch.get(i).result.complete(outcome.getOrderId());
+            } else {
+                batch.get(i).result.completeExceptionally(outcome.getError());
+            }
+        }
+    }
+
+    private void orderOne(PendingOrder pending) {
+        try {
+            pending.result.complete(orderService.order(pending.command.getMemberId(), pending.command.getCountByItemId()));
+        } catch (RuntimeException e) {
+            pending.result.completeExceptionally(e);
+        }
+    }
+
+    private static class PendingOrder {
+
+        private final OrderCommand command;
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        PendingOrder(OrderCommand command) {
+            this.command = command;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package jpabook.jpashop.service;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 묶음 주문에서 주문 하나의 결과
+ * 성공하면 주문 식별자, 실패하면 그 주문의 예외(재고 부족 등)를 가진다.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class OrderOutcome {
+
+    private final Long orderId;
+    private final RuntimeException error;
+
+    public static OrderOutcome success(Long orderId) {
+        return new OrderOutcome(orderId, null);
+    }
+
+    public static OrderOutcome failure(RuntimeException error) {
+        return new OrderOutcome(null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -1,19 +1,38 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.config.CacheConfig;
 import jpabook.jpashop.domain.Delivery;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OutboxEvent;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.InvalidRequestException;
+import jpabook.jpashop.exception.NotEnoughStockException;
 import jpabook.jpashop.repository.ItemRepository;
 import jpabook.jpashop.repository.MemberRepository;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSearchRepository;
+import jpabook.jpashop.repository.OutboxEventRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 주문 서비스는 주문 엔티티와 주문 상품 엔티티의 비즈니스 로직을 활용해서 주문, 주문 취소, 주문 내역 검색 기능을 제공한다.
@@ -31,25 +50,43 @@ import java.util.List;
 public class OrderService {
 
     private final OrderRepository orderRepository;
+    private final OrderSearchRepository orderSearchRepository;
     private final MemberRepository memberRepository;
     private final ItemRepository itemRepository;
+    private final StockService stockService;
+    private final OutboxEventRepository outboxEventRepository;
 
     /**
      * 주문
      * 주문하는 회원 식별자, 상품 식별자, 주문 수량 정보를 받아서 실제 주문 엔티티를 생성한 후 저장
      *
+     * 주문 DTO 조회 캐시는 커밋 후 무효화한다.
+     *
      * @param memberId
      * @param itemId
      * @param count
      * @return
      */
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.ORDER_QUERIES, allEntries = true)
     public Long order(Long memberId, Long itemId, int count) {
 
-        // 엔티티 조회
+        // 엔티티 조회 (재고를 차감하기 전에 회원, 상품이 있는지 확인)
         Member member = memberRepository.findOne(memberId);
+
+        if (member == null) {
+            throw new InvalidRequestException("존재하지 않는 회원입니다.");
+        }
+
         Item item = itemRepository.findOne(itemId);
 
+        if (item == null) {
+            throw new InvalidRequestException("존재하지 않는 상품입니다.");
+        }
+
+        // 재고 차감 (재고가 충분할 때만 차감하는 UPDATE 한 번 또는 인기 상품 메모리 카운터, 부족하면 NotEnoughStockException)
+        stockService.removeStock(itemId, count);
+
         // 배송정보 생성
         Delivery delivery = new Delivery();
         delivery.setAddress(member.getAddress());
@@ -63,16 +100,175 @@ public class OrderService {
         // 주문 저장
         orderRepository.save(order);
 
+        // 주문 이벤트 저장 (전송은 OutboxRelay)
+        outboxEventRepository.save(OutboxEvent.orderPlaced(order));
+
+        return order.getId();
+    }
+
+    /**
+     * 여러 상품 주문
+     * 장바구니의 상품들을 주문 하나로 묶어서 한 트랜잭션에서 저장한다. (하나라도 재고가 부족하면 전체 취소)
+     *
+     * 상품은 쿼리 한 번으로 조회하고, 재고는 상품 식별자 순서대로 조건부 UPDATE 로 차감한다.
+     * UPDATE 가 row 를 잠그는 순서가 항상 같으므로 겹치는 상품을 주문하는 장바구니가 동시에 들어와도 교착 상태가 생기지 않는다.
+     *
+     * 주문 DTO 조회 캐시는 커밋 후 무효화한다.
+     *
+     * @param memberId
+     * @param countByItemId 상품 식별자별 주문 수량
+     * @return
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.ORDER_QUERIES, allEntries = true)
+    public Long order(Long memberId, Map<Long, Integer> countByItemId) {
+
+        if (countByItemId.isEmpty()) {
+            throw new InvalidRequestException("주문할 상품이 없습니다.");
+        }
+
+        Member member = memberRepository.findOne(memberId);
+
+        if (member == null) {
+            throw new InvalidRequestException("존재하지 않는 회원입니다.");
+        }
+
+        List<Item> items = itemRepository.findAllById(countByItemId.keySet());
+
+        if (items.size() != countByItemId.size()) {
+            throw new InvalidRequestException("존재하지 않는 상품이 있습니다.");
+        }
+
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+
+        OrderItem[] orderItems = new OrderItem[items.size()];
+
+        // 식별자 순서대로 재고 차감
+        for (int i = 0; i < orderItems.length; i++) {
+            Item item = items.get(i);
+            int count = countByItemId.get(item.getId());
+
+            stockService.removeStock(item.getId(), count);
+            orderItems[i] = OrderItem.createOrderItem(item, item.getPrice(), count);
+        }
+
+        Order order = Order.createOrder(member, delivery, orderItems);
+        orderRepository.save(order);
+        outboxEventRepository.save(OutboxEvent.orderPlaced(order));
+
         return order.getId();
     }
 
+    /**
+     * 묶음 주문 (그룹 커밋)
+     * 여러 주문을 한 트랜잭션에서 저장해서 커밋 비용을 나눠 낸다. (OrderGroupCommitter)
+     *
+     * 주문 하나가 실패(없는 회원/상품, 재고 부족)해도 나머지 주문은 저장한다.
+     * 재고는 묶음 전체의 상품 식별자 순서대로 차감하고, 주문의 상품 하나라도 재고가 부족하면
+     * 그 주문에서 먼저 차감한 상품들(더 작은 식별자)의 재고를 되돌린다.
+     * row 잠금을 항상 상품 식별자 순서로 잡으므로 다른 트랜잭션과 교착 상태가 생기지 않는다.
+     *
+     * 그 밖의 예외(데이터베이스 오류 등)는 묶음 전체를 롤백한다.
+     *
+     * @param commands
+     * @return commands 와 같은 순서의 주문 결과
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.ORDER_QUERIES, allEntries = true)
+    public List<OrderOutcome> orderBatch(List<OrderCommand> commands) {
+
+        Set<Long> itemIds = new HashSet<>();
+        commands.forEach(command -> itemIds.addAll(command.getCountByItemId().keySet()));
+
+        Map<Long, Item> itemById = itemIds.isEmpty() ? Collections.emptyMap() : itemRepository.findAllById(itemIds).stream()
+                .collect(Collectors.toMap(Item::getId, item -> item));
+
+        // 주문마다 회원, 상품 확인
+        RuntimeException[] errors = new RuntimeException[commands.size()];
+        Member[] members = new Member[commands.size()];
+
+        for (int i = 0; i < commands.size(); i++) {
+            OrderCommand command = commands.get(i);
+            members[i] = memberRepository.findOne(command.getMemberId());
+
+            if (command.getCountByItemId().isEmpty()) {
+                errors[i] = new InvalidRequestException("주문할 상품이 없습니다.");
+            } else if (members[i] == null) {
+                errors[i] = new InvalidRequestException("존재하지 않는 회원입니다.");
+            } else if (!itemById.keySet().containsAll(command.getCountByItemId().keySet())) {
+                errors[i] = new InvalidRequestException("존재하지 않는 상품이 있습니다.");
+            }
+        }
+
+        // 상품 식별자 순서대로 재고 차감
+        Map<Long, List<Integer>> commandIndexesByItemId = new TreeMap<>();
+
+        for (int i = 0; i < commands.size(); i++) {
+            if (errors[i] == null) {
+                for (Long itemId : commands.get(i).getCountByItemId().keySet()) {
+                    commandIndexesByItemId.computeIfAbsent(itemId, id -> new ArrayList<>()).add(i);
+                }
+            }
+        }
+
+        commandIndexesByItemId.forEach((itemId, indexes) -> {
+            for (int i : indexes) {
+                if (errors[i] != null) {
+                    continue;
+                }
+
+                SortedMap<Long, Integer> countByItemId = commands.get(i).getCountByItemId();
+
+                try {
+                    stockService.removeStock(itemId, countByItemId.get(itemId));
+                } catch (NotEnoughStockException e) {
+                    errors[i] = e;
+                    countByItemId.headMap(itemId).forEach(stockService::addStock);
+                }
+            }
+        });
+
+        // 성공한 주문 저장
+        List<OrderOutcome> outcomes = new ArrayList<>(commands.size());
+
+        for (int i = 0; i < commands.size(); i++) {
+            if (errors[i] != null) {
+                outcomes.add(OrderOutcome.failure(errors[i]));
+                continue;
+            }
+
+            Delivery delivery = new Delivery();
+            delivery.setAddress(members[i].getAddress());
+
+            OrderItem[] orderItems = commands.get(i).getCountByItemId().entrySet().stream()
+                    .map(line -> {
+                        Item item = itemById.get(line.getKey());
+                        return OrderItem.createOrderItem(item, item.getPrice(), line.getValue());
+                    })
+                    .toArray(OrderItem[]::new);
+
+            Order order = Order.createOrder(members[i], delivery, orderItems);
+            orderRepository.save(order);
+            outboxEventRepository.save(OutboxEvent.orderPlaced(order));
+
+            outcomes.add(OrderOutcome.success(order.getId()));
+        }
+
+        return outcomes;
+    }
+
     /**
      * 주문 취소
-     * 주문 식별자를 받아서 주문 엔티티를 조회한 후 주문 엔티티에 주문 취소를 요청
+     * 주문 식별자를 받아서 주문 엔티티를 조회한 후 주문 엔티티에 주문 취소를 요청하고, 취소한 수량만큼 재고를 복구한다.
+     * 주문 취소 이벤트는 같은 트랜잭션에서 아웃박스에 저장한다.
+     *
+     * 주문 DTO 조회 캐시는 커밋 후 무효화한다.
      *
      * @param orderId
      */
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.ORDER_QUERIES, allEntries = true)
     public void cancelOrder(Long orderId) {
 
         // 주문 엔티티 조회
@@ -80,16 +276,69 @@ public class OrderService {
 
         // 주문 취소
         order.cancel();
+
+        // 취소한 수량만큼 재고 복구 (상품 식별자 순서대로)
+        order.getOrderItems().stream()
+                .sorted(Comparator.comparing(orderItem -> orderItem.getItem().getId()))
+                .forEach(orderItem -> stockService.addStock(orderItem.getItem().getId(), orderItem.getCount()));
+
+        outboxEventRepository.save(OutboxEvent.orderCanceled(order));
     }
 
     /**
      * 주문 검색
      * OrderSearch 라는 검색 조건을 가진 객체로 주문 엔티티를 검색
+     * 조건 조합별로 미리 준비한 쿼리를 사용한다. (OrderSearchRepository)
      *
      * @param orderSearch
      * @return
      */
     public List<Order> findOrders(OrderSearch orderSearch) {
-        return orderRepository.findAllByString(orderSearch);
+        return orderSearchRepository.findAll(orderSearch);
+    }
+
+    /**
+     * 주문 전체 내보내기
+     * 전체 주문을 forward-only 커서로 읽어서 회원, 배송, 주문 상품까지 로딩된 주문을 한 건씩 consumer 에 넘긴다.
+     *
+     * chunkSize 건씩 모아서 넘기므로 주문 상품은 hibernate.default_batch_fetch_size 만큼 IN 쿼리로 한꺼번에 로딩되고,
+     * chunk 를 처리한 뒤에는 영속성 컨텍스트를 비워서 주문 수와 상관없이 메모리 사용량이 일정하다.
+     * consumer 는 넘겨받은 주문을 chunk 가 끝나기 전에 (DTO 변환 등으로) 모두 사용해야 한다.
+     *
+     * @param fetchSize JDBC fetch size
+     * @param chunkSize 영속성 컨텍스트를 비우는 주기
+     * @param consumer
+     */
+    public void exportOrders(int fetchSize, int chunkSize, Consumer<Order> consumer) {
+
+        // chunkSize 가 0 이하면 영속성 컨텍스트를 한 번도 비우지 않고 전체 주문을 메모리에 올리게 된다.
+        if (fetchSize < 1 || chunkSize < 1) {
+            throw new InvalidRequestException("fetchSize, chunkSize 는 1 이상이어야 합니다.");
+        }
+
+        List<Order> chunk = new ArrayList<>(chunkSize);
+
+        try (Stream<Order> orders = orderRepository.streamAllWithMemberDelivery(fetchSize)) {
+            Iterator<Order> iterator = orders.iterator();
+
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+
+                if (chunk.size() == chunkSize) {
+                    exportChunk(chunk, consumer);
+                }
+            }
+
+            exportChunk(chunk, consumer);
+        }
+    }
+
+    private void exportChunk(List<Order> chunk, Consumer<Order> consumer) {
+
+        // 첫 주문의 컬렉션에 접근할 때 chunk 안의 다른 주문 컬렉션도 batch size 만큼 함께 로딩된다.
+        chunk.forEach(consumer);
+
+        chunk.clear();
+        orderRepository.clear();
     }
 }
@@ -0,0 +1,67 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.stock.HotItemStock;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 재고 서비스
+ *
+ * 인기 상품 메모리 재고(jpashop.hot-item)를 켜고 설정한 상품이면 메모리 카운터(HotItemStock)에서,
+ * 그 외에는 데이터베이스 조건부 UPDATE(ItemRepository)로 재고를 차감한다.
+ *
+ * 재고 부족은 주문 하나의 실패일 뿐이므로 트랜잭션을 롤백 전용으로 표시하지 않는다.
+ * (묶음 주문은 재고가 부족한 주문만 빼고 나머지를 커밋한다. 주문 하나만 처리하는 경우에는 주문 서비스에서 롤백한다.)
+ */
+@Service
+@Transactional(noRollbackFor = NotEnoughStockException.class)
+public class StockService {
+
+    private final ItemRepository itemRepository;
+    private final HotItemStock hotItemStock; // 인기 상품 메모리 재고를 끄면 null
+
+    public StockService(ItemRepository itemRepository, ObjectProvider<HotItemStock> hotItemStock) {
+        this.itemRepository = itemRepository;
+        this.hotItemStock = hotItemStock.getIfAvailable();
+    }
+
+    /**
+     * 재고 차감
+     *
+     * @param itemId
+     * @param quantity
+     * @throws NotEnoughStockException 재고가 부족한 경우
+     */
+    public void removeStock(Long itemId, int quantity) {
+
+        if (isHot(itemId)) {
+            hotItemStock.reserve(itemId, quantity);
+            return;
+        }
+
+        itemRepository.removeStock(itemId, quantity);
+    }
+
+    /**
+     * 재고 증가 (주문 취소)
+     *
+     * @param itemId
+     * @param quantity
+     */
+    public void addStock(Long itemId, int quantity) {
+
+        if (isHot(itemId)) {
+            hotItemStock.release(itemId, quantity);
+            return;
+        }
+
+        itemRepository.addStock(itemId, quantity);
+    }
+
+    private boolean isHot(Long itemId) {
+        return hotItemStock != null && hotItemStock.isHot(itemId);
+    }
+}
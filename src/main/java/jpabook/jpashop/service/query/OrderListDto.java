@@ -0,0 +1,44 @@
+package jpabook.jpashop.service.query;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 주문 목록 화면(order/orderList) 한 줄
+ * 대표 상품은 첫 번째 주문 상품, 주문 총액은 주문에 저장된 값 (주문 상품 전체를 읽지 않는다.)
+ */
+@Getter
+public class OrderListDto {
+
+    private final Long orderId;
+    private final String memberName;
+    private final String itemName;
+    private final int orderPrice;
+    private final int count;
+    private final int totalPrice;
+    private final OrderStatus status;
+    private final LocalDateTime orderDate;
+
+    /**
+     * 트랜잭션 안에서 주문의 회원, 주문 상품, 상품을 읽어서 만든다.
+     *
+     * @param order
+     */
+    public OrderListDto(Order order) {
+
+        OrderItem orderItem = order.getOrderItems().isEmpty() ? null : order.getOrderItems().get(0);
+
+        this.orderId = order.getId();
+        this.memberName = order.getMember().getName();
+        this.itemName = orderItem == null ? null : orderItem.getItem().getName();
+        this.orderPrice = orderItem == null ? 0 : orderItem.getOrderPrice();
+        this.count = orderItem == null ? 0 : orderItem.getCount();
+        this.totalPrice = order.getTotalPrice();
+        this.status = order.getStatus();
+        this.orderDate = order.getOrderDate();
+    }
+}
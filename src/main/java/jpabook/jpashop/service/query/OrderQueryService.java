@@ -0,0 +1,61 @@
+package jpabook.jpashop.service.query;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.repository.FetchPlan;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSearchRepository;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 화면 전용 조회 서비스
+ *
+ * OSIV 를 끄면 트랜잭션이 끝난 뒤(컨트롤러, 뷰)에는 지연 로딩을 할 수 없으므로
+ * 화면에 필요한 데이터를 트랜잭션 안에서 모두 읽어서 DTO 로 넘긴다.
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class OrderQueryService {
+
+    /**
+     * 주문 목록 화면에 필요한 연관관계 (회원, 대표 상품)
+     */
+    private static final FetchPlan<Order> ORDER_LIST = FetchPlan.of(Order.class, "member", "orderItems.item");
+
+    private final OrderSearchRepository orderSearchRepository;
+    private final OrderQueryRepository orderQueryRepository;
+
+    /**
+     * 주문 목록 화면 조회
+     * 회원은 조인해서 함께 조회하고, 주문 상품과 상품은 default_batch_fetch_size 로 IN 쿼리를 사용해서 한꺼번에 조회한다.
+     * (검색은 최대 건수를 지정한 쿼리이므로 컬렉션은 조인하지 않는다.)
+     *
+     * @param orderSearch
+     * @return
+     */
+    public List<OrderListDto> findOrderList(OrderSearch orderSearch) {
+        return orderSearchRepository.findAll(orderSearch, ORDER_LIST).stream()
+                .map(OrderListDto::new)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 전체 주문 스트리밍 (API V6.1)
+     * 주문 단위로 접은 DTO 를 하나씩 consumer 에 넘긴다. (OrderQueryRepository.findAllByDto_flat)
+     *
+     * 커서를 읽는 동안 커넥션이 필요하므로 consumer 가 응답을 쓰는 동안에도 읽기 전용 트랜잭션을 유지한다.
+     *
+     * @param consumer
+     */
+    public void streamOrders(Consumer<OrderQueryDto> consumer) {
+        orderQueryRepository.findAllByDto_flat(consumer);
+    }
+}
@@ -0,0 +1,326 @@
+package jpabook.jpashop.stock;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.config.HotItemProperties;
+import jpabook.jpashop.domain.StockReservation;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.StockReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 인기 상품(플래시 세일) 메모리 재고
+ *
+ * 주문이 몰리는 몇 개의 상품은 조건부 UPDATE 로 차감해도 같은 row 잠금을 기다리느라 한 줄로 처리된다.
+ * 설정한 상품(jpashop.hot-item.item-ids)의 재고는 메모리 카운터(StripedStockCounter)에서 바로 차감하고,
+ * 주문과 같은 트랜잭션에서는 재고 예약(StockReservation)만 저장한다. (row 잠금 없음)
+ *
+ * 재고 예약은 주기적으로(flush-interval) 상품별로 합쳐서 item.stock_quantity 에 반영한다.
+ * 따라서 데이터베이스의 재고는 반영 주기만큼 늦게 보인다.
+ * 반영하면 재고가 음수가 되는 예약은 남겨두고 그 뒤의 예약부터 이어서 반영하며,
+ * 남은 예약 수는 jpashop.hot-item.stuck-reservations 메트릭으로 확인한다.
+ * 애플리케이션 시작 시 남아 있는 재고 예약을 모두 반영한 후 데이터베이스 재고로 카운터를 채운다. (reconcile)
+ * 카운터가 준비되기 전에 들어온 인기 상품 주문은 조건부 UPDATE 로 빠지지 않고 준비될 때까지 기다린다.
+ * (그 사이 커밋되지 않은 차감이 있으면 카운터를 채울 때 재고를 두 번 세게 된다.)
+ *
+ * 카운터가 메모리에 있으므로 실행 중에 화면(상품 수정)에서 바꾼 재고는 다시 시작해야 카운터에 반영된다.
+ */
+@Slf4j
+public class HotItemStock {
+
+    private final HotItemProperties properties;
+    private final ItemRepository itemRepository;
+    private final StockReservationRepository stockReservationRepository;
+    private final TransactionTemplate transaction;
+
+    private final Set<Long> itemIds;
+    private final Map<Long, StripedStockCounter> counters = new ConcurrentHashMap<>();
+    private final CountDownLatch ready = new CountDownLatch(1);
+    private final AtomicInteger stuckReservations = new AtomicInteger();
+
+    public HotItemStock(HotItemProperties properties,
+                        ItemRepository itemRepository,
+                        StockReservationRepository stockReservationRepository,
+                        TransactionTemplate transaction,
+                        MeterRegistry meterRegistry) {
+
+        this.properties = properties;
+        this.itemRepository = itemRepository;
+        this.stockReservationRepository = stockReservationRepository;
+        this.transaction = transaction;
+        this.itemIds = new HashSet<>(properties.getItemIds());
+
+        Gauge.builder("jpashop.hot-item.stuck-reservations", stuckReservations, AtomicInteger::get)
+                .description("재고가 부족해서 반영하지 못하고 남은 재고 예약 수")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 인기 상품으로 설정한 상품이면 카운터가 준비될 때까지 기다린다.
+     *
+     * @param itemId
+     * @return 메모리 카운터로 재고를 관리하는 상품이면 true (설정했지만 데이터베이스에 없는 상품은 false)
+     * @throws IllegalStateException 카운터가 readyTimeout 안에 준비되지 않은 경우
+     */
+    public boolean isHot(Long itemId) {
+
+        if (!itemIds.contains(itemId)) {
+            return false;
+        }
+
+        awaitReady();
+
+        return counters.containsKey(itemId);
+    }
+
+    /**
+     * 재고 차감
+     * 주문 트랜잭션 안에서 호출해야 하고, 트랜잭션이 롤백되면 차감한 재고를 카운터에 되돌린다.
+     *
+     * @param itemId
+     * @param quantity
+     * @throws NotEnoughStockException 재고가 부족한 경우
+     */
+    public void reserve(Long itemId, int quantity) {
+
+        StripedStockCounter counter = counters.get(itemId);
+
+        if (!counter.tryReserve(quantity)) {
+            throw new NotEnoughStockException("need more stock");
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    counter.release(quantity);
+                }
+            }
+        });
+
+        stockReservationRepository.save(StockReservation.create(itemId, quantity));
+    }
+
+    /**
+     * 재고 증가 (주문 취소)
+     * 취소가 커밋되기 전에 다른 주문이 되돌린 재고를 가져가지 않도록 카운터는 커밋 후에 늘린다.
+     *
+     * @param itemId
+     * @param quantity
+     */
+    public void release(Long itemId, int quantity) {
+
+        StripedStockCounter counter = counters.get(itemId);
+
+        stockReservationRepository.save(StockReservation.create(itemId, -quantity));
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                counter.release(quantity);
+            }
+        });
+    }
+
+    /**
+     * @param itemId
+     * @return 카운터에 남은 재고 (인기 상품이 아니면 -1)
+     */
+    public long available(Long itemId) {
+
+        StripedStockCounter counter = counters.get(itemId);
+
+        return counter == null ? -1 : counter.available();
+    }
+
+    /**
+     * 남아 있는 재고 예약을 모두 반영한 후 데이터베이스 재고로 카운터를 채운다.
+     * 데이터 초기화(InitDb, DataGenerator)가 끝난 후 실행한다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reconcile() {
+
+        if (ready.getCount() == 0) {
+            return;
+        }
+
+        int flushed = flush();
+
+        for (Long itemId : properties.getItemIds()) {
+
+            Integer stock = transaction.execute(status -> itemRepository.findStockQuantity(itemId));
+
+            if (stock == null) {
+                log.warn("인기 상품으로 설정한 상품이 없습니다. itemId={}", itemId);
+                continue;
+            }
+
+            // 재고가 부족해서 반영하지 못하고 남은 예약은 이미 판매한 수량이므로 빼고 채운다.
+            long pending = transaction.execute(status -> stockReservationRepository.sumQuantity(itemId));
+
+            counters.put(itemId, new StripedStockCounter(properties.getStripes(), Math.max(0, stock - pending)));
+        }
+
+        ready.countDown();
+
+        log.info("인기 상품 재고 카운터 준비 완료 items={} flushedReservations={}", counters.keySet(), flushed);
+    }
+
+    /**
+     * 반영하지 못하고 남아 있는 재고 예약 수 (마지막 flush 기준)
+     *
+     * @return
+     */
+    public int getStuckReservations() {
+        return stuckReservations.get();
+    }
+
+    /**
+     * 재고 예약을 상품별로 합쳐서 item.stock_quantity 에 반영하고 삭제한다.
+     *
+     * 반영하지 못한 예약은 남아 있으므로, 다음 묶음은 이번 묶음의 마지막 예약 이후부터 읽는다.
+     * (처음부터 다시 읽으면 남은 예약이 묶음 크기 이상 쌓였을 때 그 뒤의 예약을 영영 반영하지 못한다.)
+     *
+     * @return 반영한 재고 예약 수
+     */
+    @Scheduled(fixedDelayString = "#{@hotItemProperties.flushInterval.toMillis()}")
+    public synchronized int flush() {
+
+        int flushed = 0;
+        int stuck = 0;
+        long afterId = 0;
+
+        while (true) {
+            long from = afterId;
+            FlushBatch batch = transaction.execute(status -> flushBatch(from));
+
+            flushed += batch.flushed;
+            stuck += batch.read - batch.flushed;
+
+            if (batch.read < properties.getFlushBatchSize()) {
+                break;
+            }
+
+            afterId = batch.lastId;
+        }
+
+        stuckReservations.set(stuck);
+
+        if (stuck > 0) {
+            log.warn("재고가 부족해서 반영하지 못한 재고 예약이 남아 있습니다. stuckReservations={}", stuck);
+        }
+
+        return flushed;
+    }
+
+    /**
+     * @param afterId 이 식별자 이후의 예약부터 읽는다.
+     * @return 읽은 예약 수와 반영하고 삭제한 예약 수
+     */
+    private FlushBatch flushBatch(long afterId) {
+
+        List<StockReservation> reservations = stockReservationRepository.findOldest(afterId, properties.getFlushBatchSize());
+
+        Map<Long, List<Long>> idsByItemId = new TreeMap<>(); // 상품 식별자 순서대로 UPDATE (주문과 같은 잠금 순서)
+        Map<Long, Integer> quantityByItemId = new HashMap<>();
+
+        for (StockReservation reservation : reservations) {
+            idsByItemId.computeIfAbsent(reservation.getItemId(), itemId -> new ArrayList<>()).add(reservation.getId());
+            quantityByItemId.merge(reservation.getItemId(), reservation.getQuantity(), Integer::sum);
+        }
+
+        int flushed = 0;
+
+        for (Map.Entry<Long, List<Long>> entry : idsByItemId.entrySet()) {
+            Long itemId = entry.getKey();
+            List<Long> ids = entry.getValue();
+
+            if (!applyStock(itemId, quantityByItemId.get(itemId))) {
+                continue; // 반영하지 못한 예약은 남겨두고 다음 주기에 다시 시도한다.
+            }
+
+            // 다른 곳에서 먼저 반영(삭제)했으면 롤백해서 같은 예약을 두 번 반영하지 않는다.
+            int deleted = stockReservationRepository.deleteAll(ids);
+
+            if (deleted != ids.size()) {
+                throw new IllegalStateException("재고 예약을 이미 반영했습니다. expected=" + ids.size() + " deleted=" + deleted);
+            }
+
+            flushed += ids.size();
+        }
+
+        long lastId = reservations.isEmpty() ? afterId : reservations.get(reservations.size() - 1).getId();
+
+        return new FlushBatch(reservations.size(), flushed, lastId);
+    }
+
+    /**
+     * 재고 예약 합계를 item.stock_quantity 에 반영
+     * 카운터에서 이미 확인했더라도 실행 중에 데이터베이스 재고가 바뀌었을 수 있으므로 재고가 음수가 되지 않을 때만 차감한다.
+     *
+     * @return 반영하지 못했으면 false
+     */
+    private boolean applyStock(Long itemId, int quantity) {
+
+        if (quantity < 0) {
+            itemRepository.addStock(itemId, -quantity);
+            return true;
+        }
+
+        if (quantity == 0) {
+            return true;
+        }
+
+        try {
+            itemRepository.removeStock(itemId, quantity);
+            return true;
+        } catch (NotEnoughStockException e) {
+            log.error("재고 예약을 반영하면 재고가 음수가 됩니다. 데이터베이스 재고를 확인하세요. itemId={} quantity={}", itemId, quantity);
+            return false;
+        }
+    }
+
+    private void awaitReady() {
+
+        try {
+            if (!ready.await(properties.getReadyTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("인기 상품 재고 카운터를 준비하고 있습니다.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("인기 상품 재고 카운터를 기다리다 중단되었습니다.", e);
+        }
+    }
+
+    private static class FlushBatch {
+
+        private final int read;
+        private final int flushed;
+        private final long lastId;
+
+        FlushBatch(int read, int flushed, long lastId) {
+            this.read = read;
+            this.flushed = flushed;
+            this.lastId = lastId;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package jpabook.jpashop.stock;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 여러 칸(stripe)으로 나눈 재고 카운터
+ *
+ * 재고 하나를 AtomicLong 하나로 관리하면 모든 스레드가 같은 값을 두고 CAS 를 반복한다.
+ * 재고를 여러 칸에 나눠 담고 스레드마다 다른 칸에서 먼저 차감해서 충돌을 줄인다.
+ * 자기 칸이 부족하면 다른 칸을 차례로 시도하고, 어느 한 칸으로도 부족하면 잠금을 잡고 모든 칸을 한 칸으로 모은 후 다시 시도한다.
+ * 칸의 합이 전체 재고이므로 재고보다 많이 차감하는 경우는 없다.
+ */
+public class StripedStockCounter {
+
+    /**
+     * 칸끼리 같은 캐시 라인을 쓰지 않도록 long 8개(64 byte) 간격으로 배치한다.
+     */
+    private static final int PADDING = 8;
+
+    private final int stripes;
+    private final AtomicLongArray cells;
+
+    public StripedStockCounter(int stripes, long stock) {
+
+        if (stripes < 1) {
+            throw new IllegalArgumentException("stripes 는 1 이상이어야 합니다. stripes=" + stripes);
+        }
+
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PADDING);
+
+        for (int i = 0; i < stripes; i++) {
+            cells.set(index(i), stock / stripes + (i < stock % stripes ? 1 : 0));
+        }
+    }
+
+    /**
+     * 재고 차감
+     *
+     * @param quantity
+     * @return 재고가 부족하면 false (차감하지 않는다.)
+     */
+    public boolean tryReserve(int quantity) {
+
+        int home = home();
+
+        for (int i = 0; i < stripes; i++) {
+            if (tryTake((home + i) % stripes, quantity)) {
+                return true;
+            }
+        }
+
+        return tryReserveAcrossStripes(home, quantity);
+    }
+
+    /**
+     * 재고 증가 (예약 취소, 주문 취소)
+     *
+     * @param quantity
+     */
+    public void release(int quantity) {
+        cells.addAndGet(index(home()), quantity);
+    }
+
+    /**
+     * @return 남은 재고 (동시에 차감 중이면 근사값)
+     */
+    public long available() {
+
+        long sum = 0;
+
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(index(i));
+        }
+
+        return sum;
+    }
+
+    /**
+     * 칸마다 재고가 조금씩 남아서 한 칸으로는 부족한 경우
+     * 모든 칸을 home 칸으로 모은 후 다시 시도한다. (재고가 거의 떨어졌을 때만 실행된다.)
+     */
+    private synchronized boolean tryReserveAcrossStripes(int home, int quantity) {
+
+        long drained = 0;
+
+        for (int i = 0; i < stripes; i++) {
+            drained += cells.getAndSet(index(i), 0);
+        }
+
+        cells.addAndGet(index(home), drained);
+
+        return tryTake(home, quantity);
+    }
+
+    private boolean tryTake(int stripe, int quantity) {
+
+        int index = index(stripe);
+
+        while (true) {
+            long current = cells.get(index);
+
+            if (current < quantity) {
+                return false;
+            }
+
+            if (cells.compareAndSet(index, current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    private int home() {
+        return (int) (Thread.currentThread().getId() % stripes);
+    }
+
+    private static int index(int stripe) {
+        return stripe * PADDING;
+    }
+}
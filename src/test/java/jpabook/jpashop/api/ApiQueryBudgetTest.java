@@ -0,0 +1,313 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.config.CacheConfig;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.monitoring.SqlStatementCountFilter;
+import jpabook.jpashop.monitoring.SqlStatementStats;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * 주문/회원 API 의 SQL 실행 수와 응답 시간 회귀 테스트
+ *
+ * 고정 데이터(InitDb 주문 2건 + 추가 주문 18건 = 주문 20건, 회원 8명, 상품 8개)를 커밋해두고 각 API 를 호출해서
+ * - 요청 하나에서 실행한 SQL 수가 API 별 예산과 정확히 같은지 (페이징 API 는 SQL 에 limit 이 있는지)
+ * - 여러 번 호출한 응답 시간의 p95 가 api-latency-baseline.properties 의 기준 이하인지 확인한다.
+ *
+ * SQL 실행 수는 항상 확인한다.
+ * 응답 시간은 CI 장비 부하나 JIT 상태에 따라 흔들리므로, 기준을 맞춘 장비에서 -Djpashop.latency-check=true 로 켤 때만 확인한다.
+ * (gradle 은 ./gradlew test -PlatencyCheck)
+ *
+ * N+1 지연 로딩이 다시 생기면 SQL 수가 주문 수만큼 늘어나서 실패한다.
+ * 페이징 API 에 컬렉션 fetch join 을 넣으면 하이버네이트가 limit 없이 전체를 읽고 메모리에서 페이징하므로(HHH000104)
+ * SQL 수는 오히려 줄어든다. 그래서 실행 수는 예산 이하가 아니라 정확히 같은지 확인하고, 페이징 API 는 limit 도 확인한다.
+ * V1, V2, V4 처럼 원래 N+1 이 있는 API 도 현재 실행 수를 예산으로 고정해서 더 나빠지지 않게 한다.
+ *
+ * 2차 캐시(Member, Item)에 적중하면 SQL 이 줄어들어 호출 순서에 따라 실행 수가 달라지므로 매 요청 전에 2차 캐시도 비운다.
+ *
+ * 데이터를 커밋하므로 다른 테스트와 같은 데이터베이스를 쓰지 않도록 별도의 설정으로 컨텍스트를 띄운다.
+ * (설정이 다르면 스프링 테스트 컨텍스트가 따로 만들어지고, 내장 데이터베이스 이름도 따로 생성된다.)
+ * 배치 페치 크기는 운영 설정(application.yml)과 같게 맞춘다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.default_batch_fetch_size=100",
+        "spring.datasource.generate-unique-name=true",
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info"
+})
+@AutoConfigureMockMvc
+public class ApiQueryBudgetTest {
+
+    private static final int ORDER_COUNT = 20; // InitDb 2건 포함
+    private static final int WARM_UP = 3;
+    private static final int SAMPLES = 20;
+    private static final boolean LATENCY_CHECK = Boolean.getBoolean("jpashop.latency-check");
+    private static final Pattern ROOT_ORDER_QUERY = Pattern.compile("(?is)\\bfrom\\s+orders\\b");
+    private static final Pattern LIMIT = Pattern.compile("(?i)\\b(limit|fetch\\s+first)\\b");
+
+    private static boolean seeded;
+    private static Properties latencyBaseline;
+
+    @Autowired MockMvc mockMvc;
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired CacheManager cacheManager;
+
+    @Before
+    public void seed() throws Exception {
+
+        if (seeded) {
+            return;
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+
+            Book[] books = new Book[4];
+
+            for (int i = 0; i < books.length; i++) {
+                books[i] = createBook("BUDGET" + i + " Book", 10000 * (i + 1), 1000);
+            }
+
+            Member[] members = new Member[6];
+
+            for (int i = 0; i < members.length; i++) {
+                members[i] = createMember("budget" + i);
+            }
+
+            // 회원마다 3건, 주문마다 상품 2개
+            for (int i = 0; i < ORDER_COUNT - 2; i++) {
+                Member member = members[i % members.length];
+                Book book1 = books[i % books.length];
+                Book book2 = books[(i + 1) % books.length];
+
+                Delivery delivery = new Delivery();
+                delivery.setAddress(member.getAddress());
+
+                em.persist(Order.createOrder(member, delivery,
+                        OrderItem.createOrderItem(book1, book1.getPrice(), 1),
+                        OrderItem.createOrderItem(book2, book2.getPrice(), 2)));
+            }
+        });
+
+        if (LATENCY_CHECK) {
+            latencyBaseline = loadLatencyBaseline();
+        }
+
+        seeded = true;
+    }
+
+    @Test
+    public void 회원_조회() throws Exception {
+        assertBudget("members.v1", 1, () -> get("/api/v1/members"));
+        assertBudget("members.v2", 1, () -> get("/api/v2/members"));
+        assertBudget("members.v3", 1, () -> get("/api/v3/members"));
+    }
+
+    @Test
+    public void 회원_등록_수정() throws Exception {
+        // 중복 회원 조회 1번, 식별자 시퀀스 1번, INSERT 1번
+        assertBudget("members.save.v1", 3, () -> post("/api/v1/members")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"member-" + System.nanoTime() + "\"}"));
+        assertBudget("members.save.v2", 3, () -> post("/api/v2/members")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"member-" + System.nanoTime() + "\"}"));
+
+        // 조회 1번, UPDATE 1번 (수정 후 조회는 같은 영속성 컨텍스트에서 찾는다.)
+        Long memberId = em.createQuery("SELECT m.id FROM Member m WHERE m.name = 'budget0'", Long.class)
+                .getSingleResult();
+
+        assertBudget("members.update.v2", 2, () -> post("/api/v2/members/" + memberId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"budget0-" + System.nanoTime() + "\"}"));
+    }
+
+    @Test
+    public void 간단한_주문_조회() throws Exception {
+        // 주문 1번, 회원/배송 지연 로딩을 배치 페치로 1번씩
+        assertBudget("simple-orders.v1", 3, () -> get("/api/v1/simple-orders"));
+        assertBudget("simple-orders.v2", 3, () -> get("/api/v2/simple-orders"));
+
+        // fetch join / DTO 직접 조회
+        assertBudget("simple-orders.v3", 1, () -> get("/api/v3/simple-orders"));
+        assertBudget("simple-orders.v4", 1, () -> get("/api/v4/simple-orders"));
+        assertBudget("simple-orders.v4.fields", 1, () -> get("/api/v4/simple-orders").param("fields", "orderId,orderStatus"));
+    }
+
+    @Test
+    public void 주문_조회_엔티티() throws Exception {
+        // 주문 1번, 회원/배송/주문상품/상품 지연 로딩을 배치 페치로 1번씩
+        assertBudget("orders.v1", 5, () -> get("/api/v1/orders"));
+        assertBudget("orders.v2", 5, () -> get("/api/v2/orders"));
+
+        // 컬렉션 fetch join 1번
+        assertBudget("orders.v3", 1, () -> get("/api/v3/orders"));
+
+        // ToOne fetch join 1번, 주문상품/상품 배치 페치 1번씩
+        assertPaged(assertBudget("orders.v3.1", 3, () -> get("/api/v3.1/orders").param("limit", "10")));
+        assertPaged(assertBudget("orders.v3.2", 3, () -> get("/api/v3.2/orders").param("limit", "10")));
+    }
+
+    @Test
+    public void 주문_조회_DTO() throws Exception {
+        // 루트 1번, 주문마다 컬렉션 1번 (N+1)
+        assertBudget("orders.v4", 1 + ORDER_COUNT, () -> get("/api/v4/orders"));
+
+        // 루트 1번, 컬렉션 1번
+        assertBudget("orders.v5", 2, () -> get("/api/v5/orders"));
+        assertPaged(assertBudget("orders.v5.1", 2, () -> get("/api/v5.1/orders").param("limit", "10")));
+
+        // orderItems 를 요청하지 않으면 컬렉션을 조회하지 않는다.
+        assertBudget("orders.v5.fields", 1, () -> get("/api/v5/orders").param("fields", "orderId,orderStatus"));
+
+        // 플랫 조인 1번
+        assertBudget("orders.v6", 1, () -> get("/api/v6/orders"));
+        assertBudget("orders.v6.1", 1, () -> get("/api/v6.1/orders"));
+    }
+
+    @Test
+    public void 주문_내보내기() throws Exception {
+        // 주문 커서 1번, chunk 마다 주문상품/상품 배치 페치 1번씩 (chunk 1개)
+        assertBudget("orders.export", 3, () -> get("/api/orders/export.ndjson"));
+    }
+
+    /**
+     * 요청 하나에서 실행한 SQL 수가 budget 과 같고, p95 응답 시간이 기준 이하인지 확인
+     *
+     * 조회 결과 캐시(orderQueries)나 2차 캐시에 적중하면 SQL 을 실행하지 않으므로 매 요청 전에 캐시를 비운다.
+     * 응답 시간은 jpashop.latency-check 를 켰을 때만 측정한다.
+     *
+     * @param name 응답 시간 기준 키
+     * @param budget 실행해야 하는 SQL 수 (줄어도 메모리 페이징 등 다른 문제일 수 있으므로 정확히 비교한다.)
+     * @param request
+     * @return 예산을 확인한 요청의 SQL 통계
+     */
+    private SqlStatementStats assertBudget(String name, int budget, Supplier<RequestBuilder> request) throws Exception {
+
+        clearCaches();
+        SqlStatementStats stats = perform(request.get());
+
+        assertEquals(name + " SQL 실행 수가 예산과 다릅니다. " + stats.getStatements(), budget, stats.getCount());
+
+        if (!LATENCY_CHECK) {
+            return stats;
+        }
+
+        long[] elapsed = new long[SAMPLES];
+
+        for (int i = 0; i < WARM_UP + SAMPLES; i++) {
+            clearCaches();
+
+            long start = System.nanoTime();
+            perform(request.get());
+            long end = System.nanoTime();
+
+            if (i >= WARM_UP) {
+                elapsed[i - WARM_UP] = (end - start) / 1_000_000;
+            }
+        }
+
+        long p95 = percentile(elapsed, 95);
+        long ceiling = Long.parseLong(latencyBaseline.getProperty(name, latencyBaseline.getProperty("default")));
+
+        assertTrue(name + " 응답 시간 p95 " + p95 + "ms 가 기준 " + ceiling + "ms 를 넘었습니다.", p95 <= ceiling);
+
+        return stats;
+    }
+
+    private SqlStatementStats perform(RequestBuilder request) throws Exception {
+
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn();
+
+        return (SqlStatementStats) result.getRequest().getAttribute(SqlStatementCountFilter.STATS_ATTRIBUTE);
+    }
+
+    /**
+     * 주문 조회(루트) SQL 이 limit 으로 페이징하는지 확인
+     * 컬렉션을 fetch join 하면 limit 없이 전체를 읽고 메모리에서 페이징한다. (HHH000104)
+     *
+     * @param stats
+     */
+    private void assertPaged(SqlStatementStats stats) {
+        assertTrue("주문 조회 SQL 이 limit 으로 페이징해야 합니다. " + stats.getStatements(),
+                stats.getStatements().stream()
+                        .filter(sql -> ROOT_ORDER_QUERY.matcher(sql).find())
+                        .anyMatch(sql -> LIMIT.matcher(sql).find()));
+    }
+
+    private void clearCaches() {
+        cacheManager.getCache(CacheConfig.ORDER_QUERIES).clear();
+        emf.getCache().evictAll();
+    }
+
+    private static long percentile(long[] values, int percentile) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    private static Properties loadLatencyBaseline() {
+
+        Properties properties = new Properties();
+
+        try (InputStream in = ApiQueryBudgetTest.class.getResourceAsStream("/api-latency-baseline.properties")) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("응답 시간 기준 파일을 읽을 수 없습니다.", e);
+        }
+
+        return properties;
+    }
+
+    private Member createMember(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        return member;
+    }
+
+    private Book createBook(String name, int price, int stockQuantity) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(price);
+        book.setStockQuantity(stockQuantity);
+        em.persist(book);
+        return book;
+    }
+}
@@ -0,0 +1,195 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * 주문 API 응답 내용과 요청 값 검사
+ * 데이터는 InitDb 주문(userA, userB)을 사용한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class OrderApiControllerTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired ObjectMapper objectMapper;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void 주문_내보내기_NDJSON() throws Exception {
+        // when : chunk 를 1건씩 나누어도 모든 주문을 한 줄씩 써야 한다.
+        String body = mockMvc.perform(get("/api/orders/export.ndjson").param("chunkSize", "1").param("fetchSize", "1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        // then
+        List<JsonNode> lines = new ArrayList<>();
+
+        for (String line : body.split("\n")) {
+            if (!line.isEmpty()) {
+                lines.add(objectMapper.readTree(line));
+            }
+        }
+
+        assertEquals("주문 하나당 한 줄", jdbcTemplate.queryForObject("SELECT count(*) FROM orders", Integer.class).intValue(),
+                lines.size());
+
+        JsonNode userA = lines.stream()
+                .filter(line -> line.get("name").asText().equals("userA"))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("userA 의 주문이 있어야 한다."));
+
+        List<String> items = new ArrayList<>();
+        userA.get("orderItems").forEach(item -> items.add(item.get("itemName").asText() + " x" + item.get("count").asInt()));
+
+        assertEquals(2, items.size());
+        assertTrue(items.containsAll(Arrays.asList("JPA1 Book x1", "JPA2 Book x2")));
+    }
+
+    @Test
+    public void 주문_내보내기_잘못된_chunk_크기() throws Exception {
+        mockMvc.perform(get("/api/orders/export.ndjson").param("chunkSize", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/orders/export.ndjson").param("chunkSize", "-1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/orders/export.ndjson").param("fetchSize", "100001"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void 존재하지_않는_회원_주문() throws Exception {
+        // given
+        Long itemId = jdbcTemplate.queryForObject("SELECT min(item_id) FROM item", Long.class);
+        String request = "{\"memberId\": -1, \"orderItems\": [{\"itemId\": " + itemId + ", \"count\": 1}]}";
+
+        // when, then
+        mockMvc.perform(post("/api/v1/orders").contentType(MediaType.APPLICATION_JSON).content(request))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("존재하지 않는 회원입니다."));
+    }
+
+    @Test
+    public void 주문_스트리밍_V6과_같은_응답() throws Exception {
+        // when
+        JsonNode v6 = getJson("/api/v6/orders");
+        JsonNode v6Stream = getJson("/api/v6.1/orders");
+
+        // then : V6 는 주문, 주문 상품 순서를 보장하지 않으므로 정렬해서 비교한다.
+        assertTrue(v6.size() > 0);
+        assertEquals(normalize(v6), normalize(v6Stream));
+    }
+
+    @Test
+    public void 선택한_필드만_조회() throws Exception {
+        // when
+        JsonNode orders = getJson("/api/v5/orders?fields=orderStatus,orderItems");
+
+        // then : orderId 는 항상 포함한다.
+        assertTrue(orders.size() > 0);
+
+        for (JsonNode order : orders) {
+            List<String> keys = new ArrayList<>();
+            order.fieldNames().forEachRemaining(keys::add);
+
+            assertEquals(new HashSet<>(Arrays.asList("orderId", "orderStatus", "orderItems")), new HashSet<>(keys));
+        }
+    }
+
+    @Test
+    public void 재고_부족_주문() throws Exception {
+        // given
+        Long itemId = jdbcTemplate.queryForObject("SELECT min(item_id) FROM item", Long.class);
+        Long memberId = jdbcTemplate.queryForObject("SELECT min(member_id) FROM member", Long.class);
+        int stock = jdbcTemplate.queryForObject("SELECT stock_quantity FROM item WHERE item_id = ?", Integer.class, itemId);
+        String request = "{\"memberId\": " + memberId + ", \"orderItems\": [{\"itemId\": " + itemId + ", \"count\": " + (stock + 1) + "}]}";
+
+        // when, then : V2 는 그룹 커밋을 끄면 V1 과 같이 처리한다.
+        for (String url : Arrays.asList("/api/v1/orders", "/api/v2/orders")) {
+            mockMvc.perform(post(url).contentType(MediaType.APPLICATION_JSON).content(request))
+                    .andExpect(status().isConflict())
+                    .andExpect(jsonPath("$.code").value("NOT_ENOUGH_STOCK"));
+        }
+
+        assertEquals("재고는 그대로여야 한다.", stock,
+                jdbcTemplate.queryForObject("SELECT stock_quantity FROM item WHERE item_id = ?", Integer.class, itemId).intValue());
+    }
+
+    @Test
+    public void 지원하지_않는_필드_조회() throws Exception {
+        mockMvc.perform(get("/api/v5/orders").param("fields", "orderId,password"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void 페이지_크기_범위_검사() throws Exception {
+        for (String url : Arrays.asList("/api/v3.1/orders", "/api/v3.2/orders", "/api/v5.1/orders")) {
+            mockMvc.perform(get(url).param("limit", "0"))
+                    .andExpect(status().isBadRequest());
+            mockMvc.perform(get(url).param("limit", "1001"))
+                    .andExpect(status().isBadRequest());
+            mockMvc.perform(get(url).param("limit", "1000"))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    public void 잘못된_커서() throws Exception {
+        mockMvc.perform(get("/api/v3.2/orders").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v5.1/orders").param("cursor", "%%%"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private JsonNode getJson(String url) throws Exception {
+
+        String body = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        return objectMapper.readTree(body);
+    }
+
+    /**
+     * 주문은 주문 식별자 순, 주문 상품은 상품명 순으로 정렬
+     */
+    private List<JsonNode> normalize(JsonNode orders) {
+
+        List<JsonNode> result = new ArrayList<>();
+
+        for (JsonNode order : orders) {
+            List<JsonNode> orderItems = new ArrayList<>();
+            order.get("orderItems").forEach(orderItems::add);
+            orderItems.sort(Comparator.comparing(orderItem -> orderItem.get("itemName").asText()));
+
+            ObjectNode copy = order.deepCopy();
+            copy.set("orderItems", objectMapper.valueToTree(orderItems));
+            result.add(copy);
+        }
+
+        result.sort(Comparator.comparingLong(order -> order.get("orderId").asLong()));
+
+        return result;
+    }
+}
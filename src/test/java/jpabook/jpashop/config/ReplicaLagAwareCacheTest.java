@@ -0,0 +1,61 @@
+package jpabook.jpashop.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+
+/**
+ * 무효화 직후(복제 지연 window 안)에 조회한 결과는 캐시에 넣지 않는지 확인
+ */
+public class ReplicaLagAwareCacheTest {
+
+    @Test
+    public void 무효화_직후에는_저장하지_않음() throws Exception {
+        // given
+        ReplicaLagAwareCache cache = cache(Duration.ofMinutes(1));
+        cache.put("orders", "변경 전");
+
+        // when
+        cache.clear();
+        cache.put("orders", "복제본에서 읽은 결과");
+
+        // then
+        assertTrue(cache.isWithinWindow());
+        assertNull("window 안에서 조회한 결과는 캐시에 넣지 않아야 한다.", cache.get("orders"));
+    }
+
+    @Test
+    public void window_가_지나면_저장() throws Exception {
+        // given
+        ReplicaLagAwareCache cache = cache(Duration.ofMillis(50));
+        cache.clear();
+
+        // when
+        Thread.sleep(100);
+        cache.put("orders", "복제된 결과");
+
+        // then
+        assertFalse(cache.isWithinWindow());
+        assertEquals("복제된 결과", cache.get("orders").get());
+    }
+
+    @Test
+    public void 읽기_쓰기_분리를_사용하지_않으면_바로_저장() throws Exception {
+        // given
+        ReplicaLagAwareCache cache = cache(Duration.ZERO);
+
+        // when
+        cache.clear();
+        cache.put("orders", "원본에서 읽은 결과");
+
+        // then
+        assertEquals("원본에서 읽은 결과", cache.get("orders").get());
+    }
+
+    private static ReplicaLagAwareCache cache(Duration window) {
+        return new ReplicaLagAwareCache(CacheConfig.ORDER_QUERIES, Caffeine.newBuilder().build(), true, window);
+    }
+}
@@ -0,0 +1,183 @@
+package jpabook.jpashop.config;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.servlet.http.Cookie;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * 로컬 H2 인스턴스 여러 개로 읽기/쓰기 분리 확인
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void 읽기전용_트랜잭션은_복제본() throws Exception {
+        // given
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(h2("primary"),
+                Arrays.asList(h2("replica1")), ReplicaRoutingDataSource.Strategy.ROUND_ROBIN,
+                new ReplicationLagGuard(Duration.ZERO));
+
+        // when, then
+        assertEquals("primary", databaseOf(dataSource));
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals("replica1", databaseOf(dataSource));
+    }
+
+    @Test
+    public void 라운드로빈() throws Exception {
+        // given
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(h2("primary"),
+                Arrays.asList(h2("replica1"), h2("replica2")), ReplicaRoutingDataSource.Strategy.ROUND_ROBIN,
+                new ReplicationLagGuard(Duration.ZERO));
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // when, then
+        assertEquals("replica1", databaseOf(dataSource));
+        assertEquals("replica2", databaseOf(dataSource));
+        assertEquals("replica1", databaseOf(dataSource));
+    }
+
+    @Test
+    public void 사용중인_커넥션이_가장_적은_복제본() throws Exception {
+        // given
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(h2("primary"),
+                Arrays.asList(h2("replica1"), h2("replica2")), ReplicaRoutingDataSource.Strategy.LEAST_LOADED,
+                new ReplicationLagGuard(Duration.ZERO));
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // when
+        try (Connection busy = dataSource.getConnection()) {
+            assertEquals(1, dataSource.getInUse(0));
+
+            // then
+            assertEquals("replica2", databaseOf(dataSource));
+        }
+
+        assertEquals("커넥션을 닫으면 사용 중인 수가 줄어야 한다.", 0, dataSource.getInUse(0));
+    }
+
+    @Test
+    public void 쓰기_커밋_직후에는_원본에서_읽기() throws Exception {
+        // given
+        ReplicationLagGuard lagGuard = new ReplicationLagGuard(Duration.ofMinutes(1));
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(h2("primary"),
+                Arrays.asList(h2("replica1")), ReplicaRoutingDataSource.Strategy.ROUND_ROBIN, lagGuard);
+
+        AtomicLong cookie = new AtomicLong();
+        lagGuard.bind(0, cookie::set);
+
+        try {
+            // 쓰기 트랜잭션 커밋
+            commitWrite(dataSource);
+
+            // when
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+            // then
+            assertEquals("복제 지연 시간 안에는 원본에서 읽어야 한다.", "primary", databaseOf(dataSource));
+            assertTrue("커밋 시각을 사용자에게 돌려줘야 한다.", cookie.get() > 0);
+        } finally {
+            lagGuard.unbind();
+        }
+    }
+
+    @Test
+    public void 다른_사용자의_쓰기는_복제본_읽기에_영향_없음() throws Exception {
+        // given
+        ReplicationLagGuard lagGuard = new ReplicationLagGuard(Duration.ofMinutes(1));
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(h2("primary"),
+                Arrays.asList(h2("replica1")), ReplicaRoutingDataSource.Strategy.ROUND_ROBIN, lagGuard);
+
+        AtomicLong writerCookie = new AtomicLong();
+
+        // 사용자 A 의 주문 커밋
+        lagGuard.bind(0, writerCookie::set);
+        commitWrite(dataSource);
+        lagGuard.unbind();
+
+        // when : 쓰기 이력이 없는 사용자 B 의 읽기
+        lagGuard.bind(0, commitMillis -> { });
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        try {
+            // then
+            assertEquals("다른 사용자의 읽기는 복제본으로 가야 한다.", "replica1", databaseOf(dataSource));
+        } finally {
+            lagGuard.unbind();
+        }
+
+        // 사용자 A 가 다음 요청에 커밋 시각을 가지고 오면 원본에서 읽는다.
+        lagGuard.bind(writerCookie.get(), commitMillis -> { });
+
+        try {
+            assertEquals("primary", databaseOf(dataSource));
+        } finally {
+            lagGuard.unbind();
+        }
+    }
+
+    @Test
+    public void 쿠키로_쓰기_시각_전달() throws Exception {
+        // given
+        ReplicationLagGuard lagGuard = new ReplicationLagGuard(Duration.ofSeconds(5));
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(lagGuard);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/order");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // when : 요청 처리 중 쓰기 트랜잭션 커밋
+        filter.doFilter(request, response, (req, res) -> {
+            TransactionSynchronizationManager.initSynchronization();
+            lagGuard.registerIfWriteTransaction();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            TransactionSynchronizationManager.clearSynchronization();
+        });
+
+        // then
+        Cookie cookie = response.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        assertNotNull("쓰기를 커밋하면 쿠키를 내려줘야 한다.", cookie);
+        assertEquals(5, cookie.getMaxAge());
+        assertFalse("요청이 끝나면 사용자 연결을 해제해야 한다.", lagGuard.isWithinWindow());
+    }
+
+    private static void commitWrite(DataSource dataSource) throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        assertEquals("primary", databaseOf(dataSource));
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private static DataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private static String databaseOf(DataSource dataSource) throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            String url = connection.getMetaData().getURL();
+            return url.substring("jdbc:h2:mem:".length()).split(";")[0];
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package jpabook.jpashop.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * OSIV 를 끈 상태(spring.jpa.open-in-view=false)에서 화면이 지연 로딩 없이 렌더링되는지 확인한다.
+ * 데이터는 InitDb 주문(userA, userB)을 사용한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.jpa.open-in-view=false")
+@AutoConfigureMockMvc
+public class OrderControllerTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired MeterRegistry meterRegistry;
+
+    @Test
+    public void OSIV_없이_주문_목록_화면() throws Exception {
+        // when
+        mockMvc.perform(get("/orders"))
+
+        // then
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("userA")))
+                .andExpect(content().string(containsString("JPA1 Book")));
+
+        Timer timer = meterRegistry.find("jpashop.connection.hold").tag("uri", "/orders").timer();
+
+        assertNotNull("요청별 커넥션 점유 시간이 기록되어야 한다.", timer);
+        assertTrue(timer.count() > 0);
+    }
+
+    @Test
+    public void OSIV_없이도_엔티티_API_는_지연_로딩() throws Exception {
+        // 엔티티를 직접 반환하는 API 예제는 jpashop.osiv.include-patterns(/api/**) 로 영속성 컨텍스트를 유지한다.
+        mockMvc.perform(get("/api/v1/simple-orders"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("userA")));
+    }
+}
@@ -0,0 +1,105 @@
+package jpabook.jpashop.domain;
+
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.monitoring.SqlStatementCounter;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 하이버네이트 바이트코드 향상(build.gradle) 확인
+ *
+ * 향상은 Gradle 빌드에서 적용되므로 IDE 에서 직접 컴파일해서 실행하면 실패한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class BytecodeEnhancementTest {
+
+    @Autowired EntityManager em;
+
+    @Test
+    public void 배송_조회시_주문을_조회하지_않음() throws Exception {
+        // given
+        List<Long> deliveryIds = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            deliveryIds.add(createOrder().getDelivery().getId());
+        }
+
+        em.flush();
+        em.clear();
+
+        // when
+        SqlStatementCounter.start();
+
+        List<Delivery> deliveries = em.createQuery("SELECT d FROM Delivery d WHERE d.id IN :ids", Delivery.class)
+                .setParameter("ids", deliveryIds)
+                .getResultList();
+
+        int statements = SqlStatementCounter.stop().getCount();
+
+        // then
+        assertEquals(5, deliveries.size());
+        assertEquals("배송 조회 쿼리 한 번만 실행해야 한다. (배송마다 주문 조회 X)", 1, statements);
+        assertFalse(Hibernate.isPropertyInitialized(deliveries.get(0), "order"));
+
+        // 접근하면 그때 조회한다.
+        assertNotNull(deliveries.get(0).getOrder());
+        assertTrue(Hibernate.isPropertyInitialized(deliveries.get(0), "order"));
+    }
+
+    @Test
+    public void 변경한_필드만_추적() throws Exception {
+        // given
+        Long orderId = createOrder().getId();
+
+        em.flush();
+        em.clear();
+
+        Order order = em.find(Order.class, orderId);
+        SelfDirtinessTracker tracker = (SelfDirtinessTracker) order;
+
+        assertFalse("조회 직후에는 바뀐 필드가 없다.", tracker.$$_hibernate_hasDirtyAttributes());
+
+        // when
+        order.setStatus(OrderStatus.CANCLE);
+
+        // then
+        // flush 시 스냅샷과 모든 필드를 비교하지 않고, 기록된 필드만 UPDATE 대상으로 본다.
+        assertArrayEquals(new String[]{"status"}, tracker.$$_hibernate_getDirtyAttributes());
+    }
+
+    private Order createOrder() {
+
+        Member member = new Member();
+        member.setName("회원1");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+
+        Book book = new Book();
+        book.setName("시골 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        em.persist(book);
+
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+
+        Order order = Order.createOrder(member, delivery, OrderItem.createOrderItem(book, 10000, 1));
+        em.persist(order);
+
+        return order;
+    }
+}
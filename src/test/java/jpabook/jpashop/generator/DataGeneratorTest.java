@@ -0,0 +1,90 @@
+package jpabook.jpashop.generator;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "jpashop.data-generator.enabled=true",
+        "jpashop.data-generator.members=50",
+        "jpashop.data-generator.items=30",
+        "jpashop.data-generator.categories=10",
+        "jpashop.data-generator.orders=500",
+        "jpashop.data-generator.batch-size=64",
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info"
+})
+@Transactional
+public class DataGeneratorTest {
+
+    @Autowired EntityManager em;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void 데이터_생성() throws Exception {
+        // then
+        assertEquals("InitDb 대신 생성한 회원만 있어야 한다.", 50, count("select count(*) from member"));
+        assertEquals(30, count("select count(*) from item"));
+        assertEquals("상품 종류를 번갈아 생성해야 한다.", 3, count("select count(distinct dtype) from item"));
+        assertEquals(500, count("select count(*) from orders"));
+        assertEquals(500, count("select count(*) from delivery"));
+        assertEquals(2, count("select count(distinct status) from orders"));
+
+        long orderItems = count("select count(*) from order_item");
+        assertTrue("주문당 상품은 1 ~ 5개", orderItems >= 500 && orderItems <= 500 * 5);
+        assertEquals("한 주문에 같은 상품이 중복되지 않아야 한다.", 0,
+                count("select count(*) from (select order_id, item_id from order_item group by order_id, item_id having count(*) > 1)"));
+        assertEquals("주문 총액은 주문 상품 가격 * 수량의 합이어야 한다.", 0,
+                count("select count(*) from orders o where o.total_price <>"
+                        + " (select sum(oi.order_price * oi.count) from order_item oi where oi.order_id = o.order_id)"));
+    }
+
+    @Test
+    public void 인기_상품에_몰려도_주문_내_상품_중복_없음() throws Exception {
+        // given : 거의 항상 가장 인기 있는 상품만 뽑히는 분포
+        int itemCount = 5;
+        ZipfDistribution popularity = new ZipfDistribution(itemCount, 20.0);
+        SplittableRandom random = new SplittableRandom(42);
+        int[] orderedItems = new int[itemCount];
+
+        // when : 다시 뽑아도 계속 겹치므로 차례로 찾아서 골라야 한다.
+        for (int line = 0; line < itemCount; line++) {
+            orderedItems[line] = DataGenerator.distinctItem(popularity, random, orderedItems, line, itemCount);
+        }
+
+        // then
+        assertEquals("모든 상품을 한 번씩 골라야 한다.", itemCount, IntStream.of(orderedItems).distinct().count());
+    }
+
+    @Test
+    public void 생성_후_JPA_저장() throws Exception {
+        // given
+        long maxId = count("select max(order_item_id) from order_item");
+
+        // when
+        Member member = new Member();
+        member.setName("new member");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+
+        // then
+        assertTrue("생성한 식별자와 겹치지 않아야 한다.", member.getId() > maxId);
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
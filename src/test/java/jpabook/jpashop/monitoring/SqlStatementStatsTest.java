@@ -0,0 +1,69 @@
+package jpabook.jpashop.monitoring;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SqlStatementStatsTest {
+
+    private final SqlStatementCounter counter = new SqlStatementCounter();
+
+    @Test
+    public void 반복된_SQL_탐지() throws Exception {
+        // given
+        SqlStatementCounter.start();
+
+        counter.inspect("select member0_.member_id as member_i1_4_ from member member0_");
+
+        for (int i = 0; i < 5; i++) {
+            counter.inspect("select orderitems0_.order_id as order_id5_5_0_ from order_item orderitems0_ where orderitems0_.order_id=?");
+        }
+
+        // when
+        SqlStatementStats stats = SqlStatementCounter.stop();
+        List<SqlStatementStats.RepeatedStatement> repeated = stats.repeated(5);
+
+        // then
+        assertEquals(6, stats.getCount());
+        assertEquals(1, repeated.size());
+        assertEquals(5, repeated.get(0).getCount());
+        assertEquals("order_item.order_id", repeated.get(0).getAssociation());
+    }
+
+    @Test
+    public void IN_절_파라미터_수가_달라도_같은_SQL() throws Exception {
+        // given
+        SqlStatementCounter.start();
+
+        counter.inspect("select item0_.item_id from item item0_ where item0_.item_id in (?, ?)");
+        counter.inspect("select item0_.item_id from item item0_ where item0_.item_id in (?, ?, ?)");
+
+        // when
+        SqlStatementStats stats = SqlStatementCounter.stop();
+
+        // then
+        assertEquals(1, stats.repeated(2).size());
+    }
+
+    @Test
+    public void 안쪽_구간은_바깥_구간에_합산() throws Exception {
+        // given
+        SqlStatementStats outer = SqlStatementCounter.start();
+        counter.inspect("select 1");
+
+        SqlStatementCounter.start();
+        counter.inspect("select 2");
+
+        // when
+        SqlStatementStats inner = SqlStatementCounter.stop();
+        SqlStatementCounter.stop();
+
+        // then
+        assertEquals(1, inner.getCount());
+        assertEquals(2, outer.getCount());
+        assertEquals("구간이 끝나면 더 이상 세지 않는다.", "select 3", counter.inspect("select 3"));
+        assertEquals(2, outer.getCount());
+    }
+}
@@ -0,0 +1,82 @@
+package jpabook.jpashop.outbox;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.OutboxEvent;
+import jpabook.jpashop.domain.OutboxEventType;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * 주문/주문 취소 이벤트가 아웃박스를 거쳐 전송되는지 확인한다.
+ *
+ * 주문을 커밋해야 전송하므로 테스트 트랜잭션(@Transactional)을 사용하지 않고, 별도의 데이터베이스로 컨텍스트를 띄운다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "jpashop.outbox.sink=memory",
+        "spring.datasource.generate-unique-name=true",
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info"
+})
+public class OutboxRelayTest {
+
+    @Autowired EntityManager em;
+    @Autowired OrderService orderService;
+    @Autowired OutboxRelay outboxRelay;
+    @Autowired InMemoryOutboxSink outboxSink;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void 주문_이벤트_전송() throws Exception {
+        // given
+        Book book = new Book();
+        book.setName("아웃박스 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+
+        Member member = new Member();
+        member.setName("아웃박스 회원");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.persist(book);
+            em.persist(member);
+        });
+
+        Long orderId = orderService.order(member.getId(), book.getId(), 2);
+        orderService.cancelOrder(orderId);
+
+        // when
+        outboxRelay.relay(); // 주기적인 전송이 먼저 처리했을 수도 있다.
+
+        // then
+        List<OutboxEvent> events = outboxSink.getEvents().stream()
+                .filter(event -> orderId.equals(event.getOrderId()))
+                .collect(Collectors.toList());
+
+        assertEquals(2, events.size());
+        assertEquals(OutboxEventType.ORDER_PLACED, events.get(0).getType());
+        assertEquals(OutboxEventType.ORDER_CANCELED, events.get(1).getType());
+        assertTrue(events.get(0).getPayload().contains("\"itemId\":" + book.getId() + ",\"orderPrice\":10000,\"count\":2"));
+
+        Integer undelivered = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM outbox_event WHERE order_id = ? AND delivered_at IS NULL", Integer.class, orderId);
+        assertEquals("전송한 이벤트는 전송 완료로 표시해야 한다.", 0, undelivered.intValue());
+    }
+}
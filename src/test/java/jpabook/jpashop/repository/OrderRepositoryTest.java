@@ -0,0 +1,148 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.InvalidRequestException;
+import org.hibernate.Hibernate;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class OrderRepositoryTest {
+
+    @Autowired EntityManager em;
+    @Autowired OrderRepository orderRepository;
+
+    @Test
+    public void 커서_페이징() throws Exception {
+        // given
+        List<Long> savedIds = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            savedIds.add(createOrder().getId());
+        }
+
+        em.flush();
+        em.clear();
+
+        // when
+        List<Long> pagedIds = new ArrayList<>();
+        OrderCursor cursor = OrderCursor.first(OrderCursor.Sort.ID);
+
+        while (true) {
+            List<Order> page = orderRepository.findAll(cursor, 2, FetchPlans.ORDER_MEMBER_DELIVERY);
+            page.forEach(o -> pagedIds.add(o.getId()));
+
+            if (page.size() < 2) {
+                break;
+            }
+
+            Order last = page.get(page.size() - 1);
+            cursor = OrderCursor.decode(cursor.next(last.getId(), last.getOrderDate()).encode());
+        }
+
+        // then
+        assertTrue("커서로 모든 주문을 조회해야 한다.", pagedIds.containsAll(savedIds));
+
+        for (int i = 1; i < pagedIds.size(); i++) {
+            assertTrue("order_id 오름차순으로 중복 없이 조회해야 한다.", pagedIds.get(i - 1) < pagedIds.get(i));
+        }
+    }
+
+    @Test
+    public void 커서_페이징_주문일시_정렬() throws Exception {
+        // given
+        for (int i = 0; i < 3; i++) {
+            createOrder();
+        }
+
+        em.flush();
+        em.clear();
+
+        // when
+        OrderCursor cursor = OrderCursor.first(OrderCursor.Sort.ORDER_DATE);
+        List<Order> firstPage = orderRepository.findAll(cursor, 1, FetchPlans.ORDER_MEMBER_DELIVERY);
+
+        Order last = firstPage.get(0);
+        OrderCursor nextCursor = OrderCursor.decode(cursor.next(last.getId(), last.getOrderDate()).encode());
+        List<Order> secondPage = orderRepository.findAll(nextCursor, 1, FetchPlans.ORDER_MEMBER_DELIVERY);
+
+        // then
+        assertEquals(OrderCursor.Sort.ORDER_DATE, nextCursor.getSort());
+        assertEquals(last.getOrderDate(), nextCursor.getLastOrderDate());
+        assertNotEquals("다음 페이지는 이전 페이지 이후부터 조회해야 한다.", last.getId(), secondPage.get(0).getId());
+        assertFalse(secondPage.get(0).getOrderDate().isBefore(last.getOrderDate()));
+    }
+
+    @Test
+    public void 컬렉션_fetch_plan() throws Exception {
+        // given
+        Order order = createOrder();
+        order.addOrderItem(OrderItem.createOrderItem(order.getOrderItems().get(0).getItem(), 10000, 2));
+        createOrder();
+
+        em.flush();
+        em.clear();
+
+        // when
+        List<Order> all = orderRepository.findAll(FetchPlans.ORDER_ITEMS);
+
+        // then
+        assertEquals("주문 상품 수만큼 주문이 중복되면 안 된다.", all.size(), new HashSet<>(all).size());
+        all.forEach(o -> assertTrue("주문 상품을 함께 조회해야 한다.", Hibernate.isInitialized(o.getOrderItems())));
+
+        em.clear();
+
+        // when
+        List<Order> page = orderRepository.findAll(FetchPlans.ORDER_ITEMS, 0, 2);
+
+        // then
+        assertEquals(2, page.size());
+        assertTrue("ToOne 관계는 함께 조회해야 한다.", Hibernate.isInitialized(page.get(0).getMember()));
+        assertFalse("페이징 쿼리는 컬렉션을 조인하지 않아야 한다.", Hibernate.isInitialized(page.get(0).getOrderItems()));
+    }
+
+    @Test(expected = InvalidRequestException.class)
+    public void 잘못된_커서() throws Exception {
+        OrderCursor.decode("invalid-cursor");
+    }
+
+    private Order createOrder() {
+
+        Member member = new Member();
+        member.setName("회원1");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+
+        Book book = new Book();
+        book.setName("시골 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        em.persist(book);
+
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+
+        Order order = Order.createOrder(member, delivery, OrderItem.createOrderItem(book, 10000, 1));
+        em.persist(order);
+
+        return order;
+    }
+}
@@ -0,0 +1,109 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * 2차 캐시 적중 확인
+ *
+ * 트랜잭션(영속성 컨텍스트)마다 같은 엔티티를 식별자로 조회하면, 처음 한 번만 데이터베이스에서 읽고 이후는 2차 캐시에서 읽어야 한다.
+ * 영속성 컨텍스트를 새로 열어야 하므로 테스트 트랜잭션(@Transactional)을 사용하지 않고,
+ * 데이터를 커밋하므로 별도의 데이터베이스로 컨텍스트를 띄운다.
+ * 캐시 영역 통계는 기본으로 수집하지 않으므로 이 테스트에서만 켠다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.datasource.generate-unique-name=true",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info"
+})
+public class SecondLevelCacheTest {
+
+    private static final int LOOKUPS = 5;
+
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+    @Autowired ItemRepository itemRepository;
+    @Autowired MemberRepository memberRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    TransactionTemplate transaction;
+    Statistics statistics;
+
+    @Before
+    public void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void 상품_반복_조회_2차_캐시_적중() throws Exception {
+        // given
+        Long itemId = transaction.execute(status -> {
+            Book book = new Book();
+            book.setName("캐시 JPA");
+            book.setPrice(10000);
+            book.setStockQuantity(10);
+            em.persist(book);
+            return book.getId();
+        });
+
+        emf.getCache().evict(Item.class); // 처음 조회는 데이터베이스에서 읽도록 비운다.
+        statistics.clear();
+
+        // when : 트랜잭션마다 새 영속성 컨텍스트로 조회
+        for (int i = 0; i < LOOKUPS; i++) {
+            assertEquals("캐시 JPA", transaction.execute(status -> itemRepository.findOne(itemId)).getName());
+        }
+
+        // then : Book 은 Item 과 같은 캐시 영역을 사용한다.
+        CacheRegionStatistics region = statistics.getDomainDataRegionStatistics(Item.class.getName());
+
+        assertEquals("처음 한 번만 데이터베이스에서 읽어야 한다.", 1, region.getMissCount());
+        assertEquals(1, region.getPutCount());
+        assertEquals("이후 조회는 2차 캐시에서 읽어야 한다.", LOOKUPS - 1, region.getHitCount());
+    }
+
+    @Test
+    public void 회원_반복_조회_2차_캐시_적중() throws Exception {
+        // given
+        Long memberId = transaction.execute(status -> {
+            Member member = new Member();
+            member.setName("캐시 회원");
+            em.persist(member);
+            return member.getId();
+        });
+
+        emf.getCache().evict(Member.class);
+        statistics.clear();
+
+        // when
+        for (int i = 0; i < LOOKUPS; i++) {
+            transaction.execute(status -> memberRepository.findOne(memberId));
+        }
+
+        // then
+        CacheRegionStatistics region = statistics.getDomainDataRegionStatistics(Member.class.getName());
+
+        assertEquals(1, region.getMissCount());
+        assertEquals(LOOKUPS - 1, region.getHitCount());
+    }
+}
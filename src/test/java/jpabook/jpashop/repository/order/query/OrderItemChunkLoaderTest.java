@@ -0,0 +1,84 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.repository.OrderCursor;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 커넥션 풀보다 많은 요청이 동시에 주문 상품을 나누어 조회해도 풀이 고갈되지 않는지 확인한다.
+ *
+ * 요청마다 트랜잭션으로 커넥션을 먼저 잡고(OSIV 와 같은 상태) chunk 조회를 기다린다.
+ * InitDb 주문 2건을 chunk 크기 1 로 나누어 항상 동시 조회 경로를 타게 하고,
+ * 커넥션 대기 시간을 짧게 해서 고갈되면 바로 실패하게 한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.datasource.generate-unique-name=true",
+        "spring.datasource.hikari.maximum-pool-size=4",
+        "spring.datasource.hikari.connection-timeout=2000",
+        "jpashop.order-query.item-chunk-size=1",
+        "jpashop.order-query.item-fetch-threads=2",
+        "jpashop.order-query.item-fetch-max-callers=8", // 풀 크기 - 조회 스레드 수(2)로 줄어야 한다.
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info"
+})
+public class OrderItemChunkLoaderTest {
+
+    private static final int REQUESTS = 16;
+
+    @Autowired EntityManager em;
+    @Autowired OrderQueryRepository orderQueryRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 커넥션_풀보다_많은_동시_요청() throws Exception {
+        // given
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(REQUESTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<OrderQueryDto>>> futures = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < REQUESTS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+
+                return transaction.execute(status -> {
+                    // 요청 스레드가 커넥션을 먼저 잡는다.
+                    em.createQuery("SELECT count(o) FROM Order o").getSingleResult();
+                    return orderQueryRepository.findAllByDto_optimization(OrderCursor.first(OrderCursor.Sort.ID), 100);
+                });
+            }));
+        }
+
+        start.countDown();
+
+        // then
+        for (Future<List<OrderQueryDto>> future : futures) {
+            List<OrderQueryDto> orders = future.get(1, TimeUnit.MINUTES); // 커넥션 대기 시간 초과는 여기서 실패한다.
+
+            assertEquals(2, orders.size());
+            orders.forEach(order -> assertEquals("주문 상품을 모두 조회해야 한다.", 2, order.getOrderItems().size()));
+        }
+
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,85 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OrderQueryAssemblerTest {
+
+    @Test
+    public void 주문상품_묶기() throws Exception {
+        // given
+        List<OrderQueryDto> orders = Arrays.asList(createOrder(3L), createOrder(1L), createOrder(2L));
+        List<OrderItemQueryDto> orderItems = Arrays.asList(
+                createOrderItem(1L, "A"), createOrderItem(3L, "B"), createOrderItem(1L, "C"), createOrderItem(99L, "D"));
+
+        // when
+        OrderQueryAssembler.attachOrderItems(orders, orderItems);
+
+        // then
+        assertEquals(Arrays.asList("B"), itemNames(orders.get(0)));
+        assertEquals("주문 상품은 조회한 순서를 유지해야 한다.", Arrays.asList("A", "C"), itemNames(orders.get(1)));
+        assertTrue("주문 상품이 없는 주문은 빈 목록이어야 한다.", orders.get(2).getOrderItems().isEmpty());
+    }
+
+    @Test
+    public void 플랫_데이터_묶기() throws Exception {
+        // given
+        List<OrderFlatDto> flats = Arrays.asList(
+                createFlat(2L, "A"), createFlat(1L, "B"), createFlat(2L, "C"));
+
+        // when
+        List<OrderQueryDto> orders = OrderQueryAssembler.fromFlats(flats);
+
+        // then
+        assertEquals(2, orders.size());
+        assertEquals("주문은 처음 나타난 순서를 유지해야 한다.", Long.valueOf(2L), orders.get(0).getOrderId());
+        assertEquals(Arrays.asList("A", "C"), itemNames(orders.get(0)));
+        assertEquals(Arrays.asList("B"), itemNames(orders.get(1)));
+    }
+
+    @Test
+    public void long_키_해시맵() throws Exception {
+        // given
+        LongIntHashMap map = new LongIntHashMap(0);
+
+        // when
+        for (int i = 0; i < 10_000; i++) {
+            map.putIfAbsent(i * 31L, i);
+        }
+
+        // then
+        assertEquals(10_000, map.size());
+        assertEquals("0 도 키로 사용할 수 있어야 한다.", 0, map.get(0L, -1));
+        assertEquals(9_999, map.get(9_999 * 31L, -1));
+        assertEquals(-1, map.get(1L, -1));
+        assertEquals("이미 있는 키는 덮어쓰지 않는다.", 1, map.putIfAbsent(31L, 100));
+    }
+
+    private OrderQueryDto createOrder(Long orderId) {
+        return new OrderQueryDto(orderId, "회원1", LocalDateTime.now(), OrderStatus.ORDER,
+                new Address("서울", "강가", "123-123"));
+    }
+
+    private OrderItemQueryDto createOrderItem(Long orderId, String itemName) {
+        return new OrderItemQueryDto(orderId, itemName, 10000, 1);
+    }
+
+    private OrderFlatDto createFlat(Long orderId, String itemName) {
+        return new OrderFlatDto(orderId, "회원1", LocalDateTime.now(), OrderStatus.ORDER,
+                new Address("서울", "강가", "123-123"), itemName, 10000, 1);
+    }
+
+    private List<String> itemNames(OrderQueryDto order) {
+        List<String> names = new ArrayList<>();
+        order.getOrderItems().forEach(oi -> names.add(oi.getItemName()));
+        return names;
+    }
+}
@@ -0,0 +1,211 @@
+package jpabook.jpashop.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 주문 그룹 커밋의 묶음 처리와 결과 전달
+ * 데이터베이스 없이 OrderService 를 대신하는 mock 으로 묶음 크기와 호출을 확인한다.
+ */
+public class OrderGroupCommitterTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    OrderService orderService;
+    SimpleMeterRegistry meterRegistry;
+    OrderGroupCommitter committer;
+
+    AtomicLong nextOrderId = new AtomicLong(1);
+    List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() {
+
+        orderService = mock(OrderService.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        // 기본 : 묶음의 모든 주문 성공
+        when(orderService.orderBatch(anyList())).thenAnswer(invocation -> {
+            List<OrderCommand> commands = invocation.getArgument(0);
+            batchSizes.add(commands.size());
+
+            List<OrderOutcome> outcomes = new ArrayList<>();
+            commands.forEach(command -> outcomes.add(OrderOutcome.success(nextOrderId.getAndIncrement())));
+
+            return outcomes;
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (committer != null) {
+            committer.close();
+        }
+    }
+
+    @Test
+    public void 최대_묶음_크기가_되면_저장() throws Exception {
+        // given : maxWait 이 길어도 최대 묶음 크기가 차면 기다리지 않는다.
+        committer = committer(3, Duration.ofSeconds(30));
+
+        // when
+        List<CompletableFuture<Long>> results = submit(3);
+
+        // then
+        for (CompletableFuture<Long> result : results) {
+            assertNotNull(result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+
+        assertEquals(Collections.singletonList(3), batchSizes);
+        assertEquals(3.0, batchSizeSummary().totalAmount(), 0);
+    }
+
+    @Test
+    public void 최대_대기_시간이_지나면_저장() throws Exception {
+        // given : 최대 묶음 크기보다 적게 들어와도 maxWait 이 지나면 저장한다.
+        committer = committer(100, Duration.ofMillis(50));
+
+        // when
+        List<CompletableFuture<Long>> results = submit(2);
+
+        // then
+        for (CompletableFuture<Long> result : results) {
+            assertNotNull(result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+
+        assertEquals(2, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue("최대 묶음 크기에 도달하지 않은 묶음", batchSizes.stream().allMatch(size -> size < 100));
+    }
+
+    @Test
+    public void 주문마다_결과_전달() throws Exception {
+        // given : 두 번째 주문만 재고 부족
+        NotEnoughStockException notEnoughStock = new NotEnoughStockException("need more stock");
+
+        when(orderService.orderBatch(anyList())).thenReturn(List.of(OrderOutcome.success(10L), OrderOutcome.failure(notEnoughStock)));
+
+        committer = committer(2, Duration.ofSeconds(30));
+
+        // when
+        List<CompletableFuture<Long>> results = submit(2);
+
+        // then
+        assertEquals(Long.valueOf(10L), results.get(0).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        try {
+            results.get(1).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("재고 부족 예외로 완료되어야 한다.");
+        } catch (ExecutionException e) {
+            assertSame("실패한 주문은 자기 주문의 예외를 받아야 한다.", notEnoughStock, e.getCause());
+        }
+    }
+
+    @Test
+    public void 묶음_저장_실패시_주문마다_다시_처리() throws Exception {
+        // given : 묶음 트랜잭션 실패 (데이터베이스 오류 등)
+        when(orderService.orderBatch(anyList())).thenThrow(new IllegalStateException("batch failure"));
+        when(orderService.order(anyLong(), anyMap())).thenAnswer(invocation -> nextOrderId.getAndIncrement());
+
+        committer = committer(2, Duration.ofSeconds(30));
+
+        // when
+        List<CompletableFuture<Long>> results = submit(2);
+
+        // then
+        for (CompletableFuture<Long> result : results) {
+            assertNotNull(result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+
+        verify(orderService, times(2)).order(anyLong(), anyMap());
+    }
+
+    @Test
+    public void 종료하면_대기_중인_주문을_모두_처리() throws Exception {
+        // given : 첫 묶음을 저장하는 동안 다른 주문이 큐에 쌓인다.
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        when(orderService.orderBatch(anyList())).thenAnswer(invocation -> {
+            saving.countDown();
+            release.await();
+
+            List<OrderCommand> commands = invocation.getArgument(0);
+            List<OrderOutcome> outcomes = new ArrayList<>();
+            commands.forEach(command -> outcomes.add(OrderOutcome.success(nextOrderId.getAndIncrement())));
+
+            return outcomes;
+        });
+
+        committer = committer(1, Duration.ZERO);
+
+        List<CompletableFuture<Long>> results = submit(1);
+        assertTrue(saving.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        results.addAll(submit(3));
+
+        // when
+        OrderGroupCommitter closing = committer;
+        committer = null;
+
+        Thread closer = new Thread(() -> {
+            try {
+                closing.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        closer.start();
+        release.countDown();
+        closer.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+
+        // then
+        assertFalse(closer.isAlive());
+
+        for (CompletableFuture<Long> result : results) {
+            assertTrue("종료 전에 요청한 주문은 모두 완료되어야 한다.", result.isDone());
+            assertNotNull(result.get());
+        }
+
+        // 종료 후 요청은 요청한 스레드에서 바로 처리한다.
+        when(orderService.order(anyLong(), anyMap())).thenReturn(100L);
+        assertEquals(Long.valueOf(100L), closing.submit(1L, Collections.singletonMap(1L, 1)).get());
+    }
+
+    private OrderGroupCommitter committer(int maxBatchSize, Duration maxWait) {
+        return new OrderGroupCommitter(orderService, maxBatchSize, maxWait, 100, meterRegistry);
+    }
+
+    private List<CompletableFuture<Long>> submit(int count) {
+
+        List<CompletableFuture<Long>> results = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            Map<Long, Integer> countByItemId = Collections.singletonMap((long) i + 1, 1);
+            results.add(committer.submit((long) i + 1, countByItemId));
+        }
+
+        return results;
+    }
+
+    private DistributionSummary batchSizeSummary() {
+        return meterRegistry.get("jpashop.order.group-commit.batch-size").summary();
+    }
+}
@@ -0,0 +1,203 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.config.CacheConfig;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 주문 DTO 조회 결과(V4, V5, V6)를 바꾸는 서비스 메서드가 커밋 후 캐시를 무효화하는지 확인한다.
+ *
+ * 커밋된 뒤의 무효화를 확인해야 하므로 테스트 트랜잭션(@Transactional)을 사용하지 않고,
+ * 데이터를 커밋하므로 별도의 데이터베이스로 컨텍스트를 띄운다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.datasource.generate-unique-name=true",
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info"
+})
+public class OrderQueryCacheEvictTest {
+
+    private static final List<String> CACHED_QUERIES =
+            List.of("findOrderQueryDtos", "findAllByDto_optimization", "findAllByDto_flat"); // V4, V5, V6
+
+    @Autowired EntityManager em;
+    @Autowired OrderService orderService;
+    @Autowired ItemService itemService;
+    @Autowired OrderQueryRepository orderQueryRepository;
+    @Autowired CacheManager cacheManager;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    TransactionTemplate transaction;
+    Long memberId;
+    Long itemId;
+
+    @Before
+    public void setUp() {
+
+        transaction = new TransactionTemplate(transactionManager);
+
+        memberId = transaction.execute(status -> {
+            Member member = new Member();
+            member.setName("캐시 회원");
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+            return member.getId();
+        });
+
+        itemId = transaction.execute(status -> {
+            Book book = new Book();
+            book.setName("캐시 JPA");
+            book.setPrice(10000);
+            book.setStockQuantity(100);
+            em.persist(book);
+            return book.getId();
+        });
+    }
+
+    @Test
+    public void 주문_시_캐시_무효화() throws Exception {
+        // given
+        int before = fillCache();
+
+        // when
+        orderService.order(memberId, itemId, 1);
+
+        // then
+        assertEvicted();
+        assertEquals("무효화 후에는 새 주문이 조회되어야 한다.", before + 1, orderQueryRepository.findOrderQueryDtos().size());
+    }
+
+    @Test
+    public void 주문_취소_시_캐시_무효화() throws Exception {
+        // given
+        Long orderId = orderService.order(memberId, itemId, 1);
+        fillCache();
+
+        // when
+        orderService.cancelOrder(orderId);
+
+        // then
+        assertEvicted();
+    }
+
+    @Test
+    public void 묶음_주문_시_캐시_무효화() throws Exception {
+        // given
+        fillCache();
+
+        // when
+        orderService.orderBatch(List.of(new OrderCommand(memberId, Collections.singletonMap(itemId, 1))));
+
+        // then
+        assertEvicted();
+    }
+
+    @Test
+    public void 상품_수정_시_캐시_무효화() throws Exception {
+        // given
+        fillCache();
+
+        // when
+        itemService.updateItem(itemId, "캐시 JPA 개정판", 12000, 100);
+
+        // then
+        assertEvicted();
+    }
+
+    @Test
+    public void 상품_병합_저장_시_캐시_무효화() throws Exception {
+        // given
+        fillCache();
+
+        Book book = new Book();
+        book.setId(itemId);
+        book.setName("캐시 JPA 병합");
+        book.setPrice(12000);
+        book.setStockQuantity(100);
+
+        // when
+        itemService.saveItem(book);
+
+        // then
+        assertEvicted();
+    }
+
+    @Test
+    public void 캐시된_결과는_수정_불가() throws Exception {
+        // given
+        orderService.order(memberId, itemId, 1);
+        fillCache();
+
+        // when
+        List<OrderQueryDto> first = orderQueryRepository.findAllByDto_flat();
+        List<OrderQueryDto> second = orderQueryRepository.findAllByDto_flat();
+
+        // then
+        assertSame("캐시 적중 시 다시 묶지 않고 같은 결과를 돌려줘야 한다.", first, second);
+
+        for (String key : CACHED_QUERIES) {
+            @SuppressWarnings("unchecked")
+            List<OrderQueryDto> cached = (List<OrderQueryDto>) cache().get(key).get();
+
+            assertUnmodifiable(key, cached);
+            assertUnmodifiable(key, cached.get(0).getOrderItems());
+        }
+    }
+
+    /**
+     * V4, V5, V6 조회로 캐시를 채운다.
+     *
+     * @return 조회한 주문 수
+     */
+    private int fillCache() {
+
+        int orders = orderQueryRepository.findOrderQueryDtos().size();
+        orderQueryRepository.findAllByDto_optimization();
+        orderQueryRepository.findAllByDto_flat();
+
+        for (String key : CACHED_QUERIES) {
+            assertNotNull(key + " 결과가 캐시되어야 한다.", cache().get(key));
+        }
+
+        return orders;
+    }
+
+    private void assertEvicted() {
+        for (String key : CACHED_QUERIES) {
+            assertNull(key + " 캐시가 무효화되어야 한다.", cache().get(key));
+        }
+    }
+
+    private static void assertUnmodifiable(String key, List<?> list) {
+        try {
+            list.clear();
+            fail(key + " 캐시된 목록은 수정할 수 없어야 한다.");
+        } catch (UnsupportedOperationException e) {
+            // 정상
+        }
+    }
+
+    private Cache cache() {
+        return cacheManager.getCache(CacheConfig.ORDER_QUERIES);
+    }
+}
@@ -6,16 +6,28 @@ import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.InvalidRequestException;
 import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.monitoring.SqlStatementCounter;
+import jpabook.jpashop.monitoring.SqlStatementStats;
 import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.Assert.*;
 
@@ -27,6 +39,7 @@ public class OrderServiceTest {
     @Autowired EntityManager em;
     @Autowired OrderService orderService;
     @Autowired OrderRepository orderRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
 
     @Test
     public void 상품주문() throws Exception {
@@ -45,6 +58,9 @@ public class OrderServiceTest {
         assertEquals("상품 주문 시 상태는 ORDER", OrderStatus.ORDER, getOrder.getStatus());
         assertEquals("주문한 상품 종류 수가 정확해야 한다.", 1, getOrder.getOrderItems().size());
         assertEquals("주문 가격은 가격 * 수량이다.", 10000 * orderCount, getOrder.getTotalPrice());
+
+        // 재고는 UPDATE 쿼리로 차감하므로 데이터베이스에서 다시 읽는다.
+        em.refresh(book);
         assertEquals("주문 수량만큼 재고가 줄어야 한다.", 8, book.getStockQuantity());
     }
 
@@ -63,6 +79,18 @@ public class OrderServiceTest {
         fail("재고 수량 부족 예외가 발생해야 한다.");
     }
     
+    @Test(expected = InvalidRequestException.class)
+    public void 존재하지_않는_상품_주문() throws Exception {
+        // given
+        Member member = createMember();
+
+        // when
+        orderService.order(member.getId(), -1L, 1);
+
+        // then
+        fail("존재하지 않는 상품 예외가 발생해야 한다.");
+    }
+
     @Test
     public void 주문취소() throws Exception {
         // given
@@ -80,9 +108,184 @@ public class OrderServiceTest {
         Order getOrder = orderRepository.findOne(orderId);
 
         assertEquals("주문 취소 시 상태는 CANCEL 이다.", OrderStatus.CANCLE, getOrder.getStatus());
+        assertEquals("주문 취소 시 주문 총액은 그대로 남아야 한다.", 10000 * orderCount, getOrder.getTotalPrice());
+
+        em.refresh(item);
         assertEquals("주문 취소된 상품은 그 만큼 재고가 증가해야 한다.", 10, item.getStockQuantity());
     }
 
+    @Test
+    public void 여러_상품_주문() throws Exception {
+        // given
+        Member member = createMember();
+        Book book1 = createBook("시골 JPA", 10000, 10);
+        Book book2 = createBook("스프링 입문", 20000, 10);
+
+        Map<Long, Integer> countByItemId = new TreeMap<>();
+        countByItemId.put(book1.getId(), 2);
+        countByItemId.put(book2.getId(), 3);
+
+        // when
+        Long orderId = orderService.order(member.getId(), countByItemId);
+
+        // then
+        Order getOrder = orderRepository.findOne(orderId);
+
+        assertEquals("주문한 상품 종류 수가 정확해야 한다.", 2, getOrder.getOrderItems().size());
+        assertEquals(10000 * 2 + 20000 * 3, getOrder.getTotalPrice());
+
+        em.refresh(book1);
+        em.refresh(book2);
+        assertEquals(8, book1.getStockQuantity());
+        assertEquals(7, book2.getStockQuantity());
+    }
+
+    @Test(expected = NotEnoughStockException.class)
+    public void 여러_상품_주문_재고수량초과() throws Exception {
+        // given
+        Member member = createMember();
+        Book book1 = createBook("시골 JPA", 10000, 10);
+        Book book2 = createBook("스프링 입문", 20000, 1);
+
+        Map<Long, Integer> countByItemId = new TreeMap<>();
+        countByItemId.put(book1.getId(), 2);
+        countByItemId.put(book2.getId(), 3);
+
+        // when
+        orderService.order(member.getId(), countByItemId);
+
+        // then
+        fail("상품 하나라도 재고가 부족하면 주문 전체가 실패해야 한다.");
+    }
+
+    @Test
+    public void 묶음_주문_실패한_주문만_제외() throws Exception {
+        // given
+        Member member = createMember();
+        Book book1 = createBook("시골 JPA", 10000, 10);
+        Book book2 = createBook("스프링 입문", 20000, 1);
+
+        Map<Long, Integer> ordered = new TreeMap<>();
+        ordered.put(book1.getId(), 2);
+
+        Map<Long, Integer> notEnoughStock = new TreeMap<>();
+        notEnoughStock.put(book1.getId(), 3);
+        notEnoughStock.put(book2.getId(), 5);
+
+        // when
+        List<OrderOutcome> outcomes = orderService.orderBatch(Arrays.asList(
+                new OrderCommand(member.getId(), ordered),
+                new OrderCommand(member.getId(), notEnoughStock),
+                new OrderCommand(-1L, ordered)));
+
+        // then
+        assertTrue(outcomes.get(0).isSuccess());
+        assertEquals(10000 * 2, orderRepository.findOne(outcomes.get(0).getOrderId()).getTotalPrice());
+        assertTrue("재고가 부족한 주문은 실패해야 한다.", outcomes.get(1).getError() instanceof NotEnoughStockException);
+        assertTrue("없는 회원의 주문은 실패해야 한다.", outcomes.get(2).getError() instanceof InvalidRequestException);
+
+        em.refresh(book1);
+        em.refresh(book2);
+        assertEquals("실패한 주문에서 먼저 차감한 재고는 되돌려야 한다.", 8, book1.getStockQuantity());
+        assertEquals(1, book2.getStockQuantity());
+    }
+
+    @Test
+    public void 상품주문_SQL_실행수() throws Exception {
+        // given
+        Member member = createMember();
+        Book book = createBook("시골 JPA", 10000, 100);
+        em.flush();
+
+        int orders = 10;
+
+        // when
+        SqlStatementCounter.start();
+
+        for (int i = 0; i < orders; i++) {
+            orderService.order(member.getId(), book.getId(), 1);
+            em.flush();
+        }
+
+        SqlStatementStats stats = SqlStatementCounter.stop();
+
+        // then
+        // 주문마다 INSERT 4번(주문, 배송, 주문상품, 아웃박스 이벤트) + 재고 UPDATE 1번
+        // 식별자는 50개씩 미리 할당받으므로 시퀀스 조회는 시퀀스마다 최대 2번 (처음 할당 시)
+        assertTrue("주문 " + orders + "건에 SQL " + stats.getCount() + "번 실행",
+                stats.getCount() <= orders * 5 + 4 * 2);
+    }
+
+    @Test
+    public void 주문_SQL_실행수는_회원의_주문_수와_무관() throws Exception {
+        // given
+        Member newMember = createMember();
+        Member loyalMember = createMember();
+        Member warmUpMember = createMember();
+        Book book = createBook("시골 JPA", 10000, 100);
+
+        // 주문 10,000건이 있는 회원 (엔티티 없이 바로 INSERT)
+        int orders = 10_000;
+        LocalDateTime orderDate = LocalDateTime.now();
+        jdbcTemplate.batchUpdate("INSERT INTO orders (order_id, member_id, order_date, status, total_price) VALUES (?, ?, ?, ?, ?)",
+                IntStream.range(0, orders)
+                        .mapToObj(i -> new Object[]{1_000_000L + i, loyalMember.getId(), orderDate, OrderStatus.ORDER.name(), 10000})
+                        .collect(Collectors.toList()));
+
+        // 시퀀스 할당, 상품 2차 캐시 상태를 맞추기 위해 먼저 한 번 주문
+        orderService.order(warmUpMember.getId(), book.getId(), 1);
+        em.flush();
+
+        // when
+        int newMemberStatements = countOrderStatements(newMember, book);
+        int loyalMemberStatements = countOrderStatements(loyalMember, book);
+
+        // then
+        assertEquals("회원의 주문 내역을 조회하지 않아야 한다.", newMemberStatements, loyalMemberStatements);
+    }
+
+    @Test
+    public void 주문_총액_검색_정렬() throws Exception {
+        // given
+        Member member = createMember();
+        Book book = createBook("시골 JPA", 10000, 100);
+
+        orderService.order(member.getId(), book.getId(), 1);
+        Long medium = orderService.order(member.getId(), book.getId(), 3);
+        Long large = orderService.order(member.getId(), book.getId(), 5);
+        Long canceled = orderService.order(member.getId(), book.getId(), 7);
+        orderService.cancelOrder(canceled); // 취소해도 총액은 남으므로 주문 상태로 거른다.
+
+        em.flush();
+        em.clear();
+
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(member.getName());
+        orderSearch.setOrderStatus(OrderStatus.ORDER);
+        orderSearch.setMinTotalPrice(10000 * 3);
+        orderSearch.setSort(OrderSearch.Sort.TOTAL_PRICE_DESC);
+
+        // when
+        List<Order> orders = orderService.findOrders(orderSearch);
+
+        // then
+        assertEquals("최소 총액 이상인 주문만 총액 높은순으로 조회해야 한다.", Arrays.asList(large, medium),
+                orders.stream().map(Order::getId).collect(Collectors.toList()));
+        assertEquals(10000 * 5, orders.get(0).getTotalPrice());
+    }
+
+    private int countOrderStatements(Member member, Book book) {
+
+        em.clear();
+
+        SqlStatementCounter.start();
+
+        orderService.order(member.getId(), book.getId(), 1);
+        em.flush();
+
+        return SqlStatementCounter.stop().getCount();
+    }
+
     private Book createBook(String name, int price, int stockQuantity) {
 
         Book book = new Book();
@@ -104,6 +307,7 @@ public class OrderServiceTest {
         member.setAddress(new Address("서울", "강가", "123-123"));
 
         em.persist(member);
+        em.flush(); // 주문 INSERT 를 JdbcTemplate 로 바로 실행하는 경우가 있으므로 먼저 저장한다.
 
         return member;
     }
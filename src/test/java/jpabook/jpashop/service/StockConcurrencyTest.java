@@ -0,0 +1,114 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 같은 상품을 동시에 주문할 때 재고 초과 판매가 없는지 확인한다.
+ *
+ * 스레드마다 각자 트랜잭션으로 주문해야 하므로 테스트 트랜잭션(@Transactional)을 사용하지 않는다.
+ * 데이터를 커밋하므로 별도의 데이터베이스로 컨텍스트를 띄우고, 같은 row 의 잠금 대기가 길어져도 실패하지 않도록 잠금 대기 시간을 늘린다.
+ * 잠금 방식과의 처리량 비교는 벤치마크(StockDecrementBenchmark)에서 한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stock-concurrency;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info"
+})
+public class StockConcurrencyTest {
+
+    private static final int THREADS = 200;
+    private static final int STOCK = 100;
+
+    @Autowired EntityManager em;
+    @Autowired OrderService orderService;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void 동시_주문_재고_초과판매_없음() throws Exception {
+        // given
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        Long memberId = transaction.execute(status -> {
+            Member member = new Member();
+            member.setName("동시주문 회원");
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+            return member.getId();
+        });
+
+        Long itemId = transaction.execute(status -> {
+            Book book = new Book();
+            book.setName("동시주문 JPA");
+            book.setPrice(10000);
+            book.setStockQuantity(STOCK);
+            em.persist(book);
+            return book.getId();
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger ordered = new AtomicInteger();
+        AtomicInteger soldOut = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+
+                try {
+                    orderService.order(memberId, itemId, 1);
+                    ordered.incrementAndGet();
+                } catch (NotEnoughStockException e) {
+                    soldOut.incrementAndGet();
+                }
+
+                return null;
+            }));
+        }
+
+        start.countDown();
+
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES); // 예상하지 못한 예외(잠금 대기 시간 초과 등)는 여기서 실패한다.
+        }
+
+        executor.shutdown();
+
+        // then
+        Integer stock = jdbcTemplate.queryForObject(
+                "SELECT stock_quantity FROM item WHERE item_id = ?", Integer.class, itemId);
+        Integer orderItems = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM order_item WHERE item_id = ?", Integer.class, itemId);
+
+        assertEquals("재고만큼만 주문이 성공해야 한다.", STOCK, ordered.get());
+        assertEquals("나머지 주문은 재고 부족으로 실패해야 한다.", THREADS - STOCK, soldOut.get());
+        assertEquals("재고가 음수가 되면 안 된다.", 0, stock.intValue());
+        assertEquals("재고 부족으로 실패한 주문은 저장되면 안 된다.", STOCK, orderItems.intValue());
+    }
+}
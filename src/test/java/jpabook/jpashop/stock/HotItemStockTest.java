@@ -0,0 +1,209 @@
+package jpabook.jpashop.stock;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jpabook.jpashop.config.HotItemProperties;
+import jpabook.jpashop.domain.StockReservation;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.StockReservationRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 인기 상품 메모리 재고와 데이터베이스 재고가 어긋나지 않는지 확인한다.
+ *
+ * 트랜잭션 커밋/롤백과 재시작을 확인해야 하므로 테스트 트랜잭션(@Transactional)을 사용하지 않고,
+ * 데이터를 커밋하므로 별도의 데이터베이스로 컨텍스트를 띄운다.
+ * 설정(jpashop.hot-item.item-ids)으로는 테스트에서 만든 상품을 지정할 수 없으므로 HotItemStock 을 직접 만든다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.datasource.generate-unique-name=true",
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info"
+})
+public class HotItemStockTest {
+
+    private static final int STOCK = 10;
+
+    @Autowired EntityManager em;
+    @Autowired ItemRepository itemRepository;
+    @Autowired StockReservationRepository stockReservationRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    TransactionTemplate transaction;
+    Long itemId;
+
+    @Before
+    public void setUp() {
+
+        transaction = new TransactionTemplate(transactionManager);
+        jdbcTemplate.update("DELETE FROM stock_reservation");
+
+        itemId = transaction.execute(status -> {
+            Book book = new Book();
+            book.setName("한정판 JPA");
+            book.setPrice(10000);
+            book.setStockQuantity(STOCK);
+            em.persist(book);
+            return book.getId();
+        });
+    }
+
+    @Test
+    public void 예약_후_롤백하면_카운터_복구() throws Exception {
+        // given
+        HotItemStock hotItemStock = hotItemStock(Duration.ofSeconds(1));
+        hotItemStock.reconcile();
+
+        // when
+        transaction.executeWithoutResult(status -> {
+            hotItemStock.reserve(itemId, 3);
+            assertEquals(STOCK - 3, hotItemStock.available(itemId));
+
+            status.setRollbackOnly();
+        });
+
+        // then
+        assertEquals("롤백하면 카운터에 재고를 되돌려야 한다.", STOCK, hotItemStock.available(itemId));
+        assertEquals("롤백한 예약은 저장되지 않아야 한다.", 0, reservationCount());
+    }
+
+    @Test
+    public void 재고_예약_반영() throws Exception {
+        // given
+        HotItemStock hotItemStock = hotItemStock(Duration.ofSeconds(1));
+        hotItemStock.reconcile();
+
+        transaction.executeWithoutResult(status -> hotItemStock.reserve(itemId, 3));
+        transaction.executeWithoutResult(status -> hotItemStock.reserve(itemId, 2));
+        assertEquals("반영 전에는 데이터베이스 재고가 그대로다.", STOCK, stockQuantity());
+
+        // when
+        int flushed = hotItemStock.flush();
+
+        // then
+        assertEquals(2, flushed);
+        assertEquals(STOCK - 5, stockQuantity());
+        assertEquals(STOCK - 5, hotItemStock.available(itemId));
+        assertEquals(0, reservationCount());
+    }
+
+    @Test
+    public void 반영하면_재고가_음수가_되는_예약은_남김() throws Exception {
+        // given
+        HotItemStock hotItemStock = hotItemStock(Duration.ofSeconds(1));
+        hotItemStock.reconcile();
+
+        transaction.executeWithoutResult(status -> hotItemStock.reserve(itemId, 3));
+        jdbcTemplate.update("UPDATE item SET stock_quantity = 1 WHERE item_id = ?", itemId); // 실행 중 재고 변경
+
+        // when
+        int flushed = hotItemStock.flush();
+
+        // then
+        assertEquals(0, flushed);
+        assertEquals("재고가 음수가 되면 안 된다.", 1, stockQuantity());
+        assertEquals("반영하지 못한 예약은 남겨야 한다.", 1, reservationCount());
+    }
+
+    @Test
+    public void 반영하지_못한_예약이_묶음_크기보다_많아도_뒤의_예약_반영() throws Exception {
+        // given : 재고가 없는 상품의 예약 3개가 앞에 쌓여 있고 (묶음 크기 2), 그 뒤에 다른 상품의 예약이 있다.
+        Long otherItemId = transaction.execute(status -> {
+            Book book = new Book();
+            book.setName("일반 JPA");
+            book.setPrice(10000);
+            book.setStockQuantity(STOCK);
+            em.persist(book);
+            return book.getId();
+        });
+
+        jdbcTemplate.update("UPDATE item SET stock_quantity = 0 WHERE item_id = ?", itemId);
+
+        transaction.executeWithoutResult(status -> {
+            for (int i = 0; i < 3; i++) {
+                stockReservationRepository.save(StockReservation.create(itemId, 1));
+            }
+            stockReservationRepository.save(StockReservation.create(otherItemId, 2));
+        });
+
+        HotItemStock hotItemStock = hotItemStock(Duration.ofSeconds(1), 2);
+
+        // when
+        int flushed = hotItemStock.flush();
+
+        // then
+        assertEquals(1, flushed);
+        assertEquals("남은 예약 뒤의 예약도 반영해야 한다.", STOCK - 2,
+                jdbcTemplate.queryForObject("SELECT stock_quantity FROM item WHERE item_id = ?", Integer.class, otherItemId).intValue());
+        assertEquals(0, stockQuantity());
+        assertEquals(3, reservationCount());
+        assertEquals(3, hotItemStock.getStuckReservations());
+    }
+
+    @Test
+    public void 재시작하면_남은_예약을_반영하고_카운터_준비() throws Exception {
+        // given : 이전 실행에서 반영하지 못한 예약 (주문 4개, 취소 1개)
+        transaction.executeWithoutResult(status -> {
+            stockReservationRepository.save(StockReservation.create(itemId, 4));
+            stockReservationRepository.save(StockReservation.create(itemId, -1));
+        });
+
+        HotItemStock restarted = hotItemStock(Duration.ofMillis(100));
+
+        // when
+        restarted.reconcile();
+
+        // then
+        assertEquals(STOCK - 3, stockQuantity());
+        assertEquals("카운터는 예약을 반영한 재고로 채워야 한다.", STOCK - 3, restarted.available(itemId));
+        assertEquals(0, reservationCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 카운터_준비_전_주문은_대기() throws Exception {
+        // given
+        HotItemStock hotItemStock = hotItemStock(Duration.ofMillis(100));
+
+        // when : 준비되지 않았으면 조건부 UPDATE 로 빠지지 않고 기다렸다가 실패한다.
+        hotItemStock.isHot(itemId);
+    }
+
+    private HotItemStock hotItemStock(Duration readyTimeout) {
+        return hotItemStock(readyTimeout, new HotItemProperties().getFlushBatchSize());
+    }
+
+    private HotItemStock hotItemStock(Duration readyTimeout, int flushBatchSize) {
+
+        HotItemProperties properties = new HotItemProperties();
+        properties.setItemIds(List.of(itemId));
+        properties.setStripes(4);
+        properties.setReadyTimeout(readyTimeout);
+        properties.setFlushBatchSize(flushBatchSize);
+
+        return new HotItemStock(properties, itemRepository, stockReservationRepository, transaction, new SimpleMeterRegistry());
+    }
+
+    private int stockQuantity() {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM item WHERE item_id = ?", Integer.class, itemId);
+    }
+
+    private int reservationCount() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM stock_reservation", Integer.class);
+    }
+}
@@ -0,0 +1,78 @@
+package jpabook.jpashop.stock;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class StripedStockCounterTest {
+
+    @Test
+    public void 재고를_칸에_나눠_담기() throws Exception {
+        // given
+        StripedStockCounter counter = new StripedStockCounter(4, 10);
+
+        // when
+        boolean reserved = counter.tryReserve(7); // 한 칸(2~3개)으로는 부족하므로 모든 칸을 모아서 차감
+
+        // then
+        assertTrue(reserved);
+        assertEquals(3, counter.available());
+        assertFalse("남은 재고보다 많이 차감할 수 없다.", counter.tryReserve(4));
+        assertEquals(3, counter.available());
+    }
+
+    @Test
+    public void 동시_차감_초과판매_없음() throws Exception {
+        // given
+        int threads = 200;
+        int stock = 1000;
+        StripedStockCounter counter = new StripedStockCounter(8, stock);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger reserved = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < threads; i++) {
+            int quantity = 1 + i % 3;
+
+            futures.add(executor.submit(() -> {
+                start.await();
+
+                // 스레드마다 재고가 떨어질 때까지 반복 차감 (중간에 일부는 되돌린다.)
+                for (int n = 0; counter.tryReserve(quantity); n++) {
+                    if (n % 10 == 0) {
+                        counter.release(quantity);
+                    } else {
+                        reserved.addAndGet(quantity);
+                    }
+                }
+
+                return null;
+            }));
+        }
+
+        start.countDown();
+
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+
+        executor.shutdown();
+
+        // then
+        assertEquals("차감한 수량과 남은 재고의 합은 처음 재고와 같아야 한다.", stock, reserved.get() + counter.available());
+        assertTrue("재고가 음수가 되면 안 된다.", counter.available() >= 0);
+        assertTrue("가장 큰 주문 수량만큼 재고가 남아 있으면 모두 차감해야 한다.", counter.available() < 3);
+    }
+}